@@ -14,6 +14,7 @@ public class Application {
 
         InitService initService = context.getBean(InitService.class);
         initService.verifyConfigVsDbSites();
+        initService.loadInMemorySearchIndex();
     }
 
     public static ApplicationContext getContext() {
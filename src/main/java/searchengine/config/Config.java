@@ -5,6 +5,8 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * Конфигурационный класс. Используется для доступа к параметрам из "application.yaml"
  */
@@ -20,6 +22,64 @@ public class Config {
     // Referrer
     private String referrer;
 
+    // Максимальное количество запросов к одному хосту в секунду (0 - без ограничения)
+    private double crawlRate;
+
+    // Максимальное количество запросов к одному хосту подряд, без ожидания
+    private int crawlBurst;
+
+    // Максимальное количество ссылок из карт сайта (sitemap.xml), добавляемых в очередь обхода; 0 - карты сайта не используются
+    private int sitemapMaxUrls;
+
+    // Ограничения обхода одного сайта (0 - без ограничения): глубина ссылок от главной страницы,
+    // количество страниц, объём полученных данных (МБ), время обхода (мин)
+    private int crawlMaxDepth;
+    private int crawlMaxPages;
+    private int crawlMaxMb;
+    private int crawlMaxMinutes;
+
+    // Способ получения страниц: jsoup (синхронно) или httpclient (асинхронно, java.net.http.HttpClient)
+    private String fetcher;
+
+    // Максимальное время выполнения запроса страницы, мс
+    private int fetchTimeout;
+
+    // Количество потоков обхода страниц (общее для всех сайтов)
+    private int crawlThreads;
+
+    // Максимальное количество одновременно обрабатываемых страниц одного сайта
+    private int crawlSiteThreads;
+
+    // Максимальное количество одновременно индексируемых сайтов
+    private int indexingThreads;
+
+    // Параметры запроса, сохраняемые в ссылках на страницы (остальные параметры удаляются)
+    private List<String> urlQueryAllowlist;
+
+    // Размер фильтра Блума для пройденных ссылок сайта, МБ (0 - точное множество отпечатков ссылок)
+    private int urlBloomFilterMb;
+
+    // Повторная индексация: сохраняются и индексируются только новые и изменившиеся страницы
+    private boolean incrementalIndexing;
+
+    // Папка для журналов очереди обхода сайтов (пустое значение - журналы не ведутся)
+    private String crawlStateDir;
+
+    // Продолжение прерванного обхода сайта с сохранённой очереди вместо полной индексации заново
+    private boolean resumeIndexing;
+
+    // Максимальное количество различающихся битов SimHash почти одинаковых страниц; < 0 - проверка отключена
+    private int nearDuplicateDistance;
+
+    // Количество потоков лемматизации страниц одного сайта
+    private int lemmatizerThreads;
+
+    // Количество потоков записи страниц одного сайта в БД
+    private int writerThreads;
+
+    // Размер очередей конвейера индексации сайта (страниц, ожидающих лемматизации и ожидающих записи в БД)
+    private int pipelineQueueSize;
+
     // Размер буфера для сохранения страниц
     private int pageBufferSize;
 
@@ -29,10 +89,43 @@ public class Config {
     // Размер буфера для сохранения индекса
     private int indexBufferSize;
 
+    // Способ записи индексов в БД: batch - пакеты параметризованных запросов, sql - запросы, собранные из значений
+    private String indexWriteMode;
+
+    // Загрузка индексов в БД командой LOAD DATA LOCAL INFILE при полной индексации сайта
+    private boolean bulkLoadIndexing;
+
+    // Папка для временных файлов загрузки индексов командой LOAD DATA LOCAL INFILE
+    private String bulkLoadDir;
+
     // Пороговое значение коэффициента встречаемости леммы на сайте
     private float lemmaOccurrenceLimit;
 
+    // Использование поискового индекса в памяти (около 8 байт кучи на запись search_index)
+    private boolean inMemoryIndex;
+
+    // Максимальный размер кэша лемматизации слов, МБ
+    private int lemmaCacheSizeMb;
+
     // Имя логера
     private String customLoggerName;
 
+    // Максимальное количество результатов поиска, хранящихся в кэше
+    private int searchCacheSize;
+
+    // Время жизни результата поиска в кэше, с
+    private long searchCacheTtl;
+
+    // Количество потоков для параллельного поиска по сайтам
+    private int searchThreads;
+
+    // Максимальное время выполнения поиска по сайтам, мс
+    private long searchTimeout;
+
+    // Максимальное количество фрагментов текста в snippet
+    private int snippetFragmentsQty;
+
+    // Количество слов во фрагменте текста snippet
+    private int snippetFragmentLength;
+
 }
\ No newline at end of file
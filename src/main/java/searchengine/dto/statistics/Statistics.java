@@ -17,6 +17,8 @@ public class Statistics {
     private final Total total; // общая статистика по всем сайтам
     private final Detailed[] detailed; // массив, содержащий статистику по каждому сайту
     private int detailedCounter = 0; // размер массива, содержащего статистику по каждому сайту
+    private LemmaCacheInfo lemmaCache; // статистика кэша лемматизации
+    private CrawlInfo crawl; // текущее состояние обхода страниц
 
     public Statistics(long sites, long pages, long lemmas, boolean isIndexing) {
         this.total = new Total(sites, pages, lemmas, isIndexing);
@@ -40,6 +42,29 @@ public class Statistics {
         }
     }
 
+    /**
+     * добавление статистики кэша лемматизации
+     *
+     * @param hits   количество обращений, результат которых найден в кэше
+     * @param misses количество обращений, потребовавших лемматизации
+     * @param words  количество слов в кэше
+     * @param bytes  оценка памяти, занимаемой кэшем, байт
+     */
+    public void setLemmaCacheInfo(long hits, long misses, long words, long bytes) {
+        this.lemmaCache = new LemmaCacheInfo(hits, misses, words, bytes);
+    }
+
+    /**
+     * добавление текущего состояния обхода страниц
+     *
+     * @param threads       количество потоков обхода страниц
+     * @param activeFetches количество обрабатываемых в данный момент страниц
+     * @param queuedTasks   количество страниц, ожидающих обработки
+     */
+    public void setCrawlInfo(int threads, int activeFetches, int queuedTasks) {
+        this.crawl = new CrawlInfo(threads, activeFetches, queuedTasks);
+    }
+
     /**
      * класс, использующийся для хранения статистики по всем сайтам
      */
@@ -83,4 +108,40 @@ public class Statistics {
             this.lemmas = lemmas;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * класс, использующийся для хранения статистики кэша лемматизации
+     */
+    @Getter
+    public class LemmaCacheInfo {
+        private final long hits; // количество обращений, результат которых найден в кэше
+        private final long misses; // количество обращений, потребовавших лемматизации
+        private final double hitRate; // доля обращений, результат которых найден в кэше
+        private final long words; // количество слов в кэше
+        private final long bytes; // оценка памяти, занимаемой кэшем, байт
+
+        public LemmaCacheInfo(long hits, long misses, long words, long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.hitRate = (hits + misses == 0) ? 0 : (double) hits / (hits + misses);
+            this.words = words;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * класс, использующийся для хранения текущего состояния обхода страниц
+     */
+    @Getter
+    public class CrawlInfo {
+        private final int threads; // количество потоков обхода страниц
+        private final int activeFetches; // количество обрабатываемых в данный момент страниц
+        private final int queuedTasks; // количество страниц, ожидающих обработки
+
+        public CrawlInfo(int threads, int activeFetches, int queuedTasks) {
+            this.threads = threads;
+            this.activeFetches = activeFetches;
+            this.queuedTasks = queuedTasks;
+        }
+    }
+}
@@ -33,6 +33,27 @@ public class Page implements Comparable<Page> {
     @Column(name = "content", nullable = false, columnDefinition = "MEDIUMTEXT")
     private String pageContent; // контент страницы
 
+    @Column(name = "title", columnDefinition = "TEXT")
+    private String pageTitle; // заголовок страницы, сохраняется при индексации
+
+    @Column(name = "text", columnDefinition = "MEDIUMTEXT")
+    private String pageText; // текст страницы без HTML разметки, сохраняется при индексации
+
+    @Column(name = "etag", columnDefinition = "VARCHAR(255)")
+    private String etag; // заголовок ETag ответа сервера
+
+    @Column(name = "last_modified", columnDefinition = "VARCHAR(64)")
+    private String lastModified; // заголовок Last-Modified ответа сервера
+
+    @Column(name = "content_hash")
+    private Long contentHash; // хэш контента страницы
+
+    @Column(name = "simhash")
+    private Long simHash; // SimHash текста страницы, используется для поиска почти одинаковых страниц
+
+    @Column(name = "alias_of")
+    private Integer aliasOf; // id почти одинаковой проиндексированной страницы; null, если страница проиндексирована
+
 
     public Page(String pageUrl, int responseCode, String pageContent, int siteId) {
         this.pageUrl = pageUrl;
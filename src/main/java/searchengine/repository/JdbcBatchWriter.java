@@ -0,0 +1,209 @@
+package searchengine.repository;
+
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * запись строк в БД пакетами параметризованных запросов (PreparedStatement.addBatch / executeBatch)
+ * текст запроса не зависит от количества и содержимого строк: MySQL и Hibernate разбирают его один раз,
+ * а значения (в том числе строки с кавычками) передаются параметрами
+ * при rewriteBatchedStatements=true в адресе подключения драйвер MySQL отправляет пакет одним многострочным INSERT
+ * для массовой загрузки используется LOAD DATA LOCAL INFILE (loadData)
+ * запись выполняется в соединении текущей транзакции; методы вызываются из транзакционных репозиториев
+ */
+@Component
+@Log4j2
+class JdbcBatchWriter {
+    private final EntityManager entityManager;
+
+    @Autowired
+    public JdbcBatchWriter(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * задание параметров запроса для одной строки
+     *
+     * @param <T> тип строки
+     */
+    @FunctionalInterface
+    interface RowBinder<T> {
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+
+    /**
+     * запись строк пакетами
+     *
+     * @param sqlQry    параметризованный запрос для одной строки
+     * @param rows      строки
+     * @param batchSize максимальное количество строк в пакете
+     * @param binder    задание параметров запроса для строки
+     */
+    public <T> void write(String sqlQry, List<T> rows, int batchSize, RowBinder<T> binder) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sqlQry)) {
+                executeBatches(statement, rows, batchSize, binder, null);
+            }
+        });
+    }
+
+    /**
+     * запись строк пакетами с получением ключей, сгенерированных БД
+     *
+     * @param sqlQry    параметризованный запрос INSERT для одной строки
+     * @param rows      строки
+     * @param batchSize максимальное количество строк в пакете
+     * @param binder    задание параметров запроса для строки
+     * @return сгенерированные ключи в порядке строк
+     */
+    public <T> List<Integer> writeReturningKeys(String sqlQry, List<T> rows, int batchSize, RowBinder<T> binder) {
+        List<Integer> generatedKeys = new ArrayList<>(rows.size());
+
+        if (rows.isEmpty()) {
+            return generatedKeys;
+        }
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sqlQry, Statement.RETURN_GENERATED_KEYS)) {
+                executeBatches(statement, rows, batchSize, binder, generatedKeys);
+            }
+        });
+
+        return generatedKeys;
+    }
+
+    /**
+     * загрузка строк в таблицу командой LOAD DATA LOCAL INFILE
+     * строки записываются во временный файл в папке directory (значения разделены табуляцией),
+     * который удаляется после загрузки;
+     * на время загрузки в сессии отключаются проверки уникальности и внешних ключей: InnoDB не поддерживает
+     * отключение вторичных индексов (DISABLE KEYS), но без проверки уникальности изменения вторичных индексов
+     * откладываются в буфер изменений
+     * требуется allowLoadLocalInfileInPath=<папка directory> в адресе подключения и local_infile=ON на сервере БД
+     *
+     * @param directory папка для временных файлов; создаётся при отсутствии
+     * @param tableName имя таблицы
+     * @param columns   перечень столбцов через запятую, в порядке значений строки
+     * @param rows      строки
+     * @param formatter получение значений строки, разделённых табуляцией (значения не должны содержать табуляцию,
+     *                  перевод строки и обратную косую черту)
+     */
+    public <T> void loadData(Path directory, String tableName, String columns, List<T> rows,
+                             Function<T, String> formatter) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        Path dataFile = null;
+        try {
+            Files.createDirectories(directory);
+            dataFile = Files.createTempFile(directory, tableName + "-", ".tsv");
+
+            try (BufferedWriter writer = Files.newBufferedWriter(dataFile, StandardCharsets.UTF_8)) {
+                for (T row : rows) {
+                    writer.write(formatter.apply(row));
+                    writer.write('\n');
+                }
+            }
+
+            String filePath = dataFile.toAbsolutePath().toString().replace('\\', '/').replace("'", "\\'");
+
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET unique_checks = 0, foreign_key_checks = 0");
+                    try {
+                        statement.execute("LOAD DATA LOCAL INFILE '" + filePath + "' INTO TABLE " + tableName
+                                + " (" + columns + ")");
+                    } finally {
+                        statement.execute("SET unique_checks = 1, foreign_key_checks = 1");
+                    }
+                }
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            deleteFile(dataFile);
+        }
+    }
+
+    /**
+     * выполнение запроса пакетами не более batchSize строк
+     *
+     * @param statement     подготовленный запрос
+     * @param rows          строки
+     * @param batchSize     максимальное количество строк в пакете
+     * @param binder        задание параметров запроса для строки
+     * @param generatedKeys список для сгенерированных ключей; null, если ключи не нужны
+     * @throws SQLException исключение при ошибке выполнения запроса
+     */
+    private <T> void executeBatches(PreparedStatement statement, List<T> rows, int batchSize, RowBinder<T> binder,
+                                    List<Integer> generatedKeys) throws SQLException {
+        int maxBatchSize = Math.max(batchSize, 1);
+        int batchCounter = 0;
+
+        for (T row : rows) {
+            binder.bind(statement, row);
+            statement.addBatch();
+
+            if (++batchCounter >= maxBatchSize) {
+                executeBatch(statement, generatedKeys);
+                batchCounter = 0;
+            }
+        }
+
+        if (batchCounter > 0) {
+            executeBatch(statement, generatedKeys);
+        }
+    }
+
+    /**
+     * удаление временного файла
+     *
+     * @param file файл; null, если файл не был создан
+     */
+    private void deleteFile(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Failed to delete " + file, ex);
+        }
+    }
+
+    private void executeBatch(PreparedStatement statement, List<Integer> generatedKeys) throws SQLException {
+        statement.executeBatch();
+
+        if (generatedKeys == null) {
+            return;
+        }
+
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            while (keys.next()) {
+                generatedKeys.add(keys.getInt(1));
+            }
+        }
+    }
+}
@@ -12,13 +12,36 @@ import java.util.Map;
  */
 public interface LemmaNonStandardRepository {
     /**
-     * получение сочетания значение леммы - id леммы
+     * получение значений и id всех лемм сайта
      *
-     * @param lemmaStrings коллекция, содержащая значения лемм (String)
-     * @param siteId       id сайта
-     * @return Map: key = значение леммы (String), value = id леммы в БД (Integer)
+     * @param siteId id сайта
+     * @return список массивов: значение леммы, id леммы
+     */
+    List<Object[]> findLemmaIdsBySiteId(int siteId);
+
+    /**
+     * увеличение частоты существующих лемм
+     *
+     * @param lemmaIdPagesQty Map: key = id леммы, value = количество новых страниц с леммой
+     */
+    void increaseFrequencies(Map<Integer, Integer> lemmaIdPagesQty);
+
+    /**
+     * уменьшение частоты лемм на 1 и удаление лемм, частота которых стала меньше 1
+     *
+     * @param lemmaIds id лемм
+     * @return значения удалённых лемм
+     */
+    List<String> decreaseFrequencies(Collection<Integer> lemmaIds);
+
+    /**
+     * сохранение новых лемм сайта
+     *
+     * @param lemmaPagesQty Map: key = значение новой леммы, value = количество страниц с леммой (начальная частота)
+     * @param siteId        id сайта
+     * @return Map: key = значение леммы, value = id сохранённой леммы
      */
-    Map<String, Integer> getLemmasByStrings(Collection<String> lemmaStrings, int siteId);
+    Map<String, Integer> insertLemmas(Map<String, Integer> lemmaPagesQty, int siteId);
 
     /**
      * поиск объектов лемм в БД по значениям (String) и id сайта (int)
@@ -9,7 +9,6 @@ import searchengine.model.Lemma;
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * класс, реализующий операции с леммами в БД
@@ -22,133 +21,132 @@ class LemmaNonStandardRepositoryImpl implements LemmaNonStandardRepository {
 
     private final Config config;
 
+    private final JdbcBatchWriter jdbcBatchWriter;
+
     @Autowired
-    public LemmaNonStandardRepositoryImpl(EntityManager entityManager, Config config) {
+    public LemmaNonStandardRepositoryImpl(EntityManager entityManager, Config config, JdbcBatchWriter jdbcBatchWriter) {
         this.entityManager = entityManager;
         this.config = config;
+        this.jdbcBatchWriter = jdbcBatchWriter;
     }
 
     /**
-     * получение сочетания значение леммы - id леммы
+     * получение значений и id всех лемм сайта
      *
-     * @param lemmaStrings коллекция, содержащая значения лемм (String)
-     * @param siteId       id сайта
-     * @return Map: key = значение леммы (String), value = id леммы в БД (Integer)
+     * @param siteId id сайта
+     * @return список массивов: значение леммы, id леммы
      */
     @Override
-    public Map<String, Integer> getLemmasByStrings(Collection<String> lemmaStrings, int siteId) {
-        Map<String, Integer> lemmasMap = new HashMap<>();
-
-        if (lemmaStrings != null && lemmaStrings.size() != 0) {
-            Set<String> requestedLemmasStrings = lemmaStrings.stream().collect(Collectors.toSet());
-            List<Lemma> savedLemmas = findSaveUpdateLemmasInDB(requestedLemmasStrings, siteId);
-            lemmasMap = createLemmasMap(savedLemmas);
-        }
+    @Transactional(readOnly = true)
+    public List<Object[]> findLemmaIdsBySiteId(int siteId) {
+        Query selectQuery = entityManager.createQuery("SELECT l.lemma, l.id FROM Lemma l WHERE l.siteId = :siteId");
+        selectQuery.setParameter("siteId", siteId);
+        List<Object[]> result = selectQuery.getResultList();
 
-        return lemmasMap;
+        return result;
     }
 
-
     /**
-     * сохранение лемм в БД и получение их списка
-     * при сохранении лемм, которые уже существуют в БД обновляется значение частоты, с которой лемма встречается на странице
+     * увеличение частоты существующих лемм
+     * леммы с одинаковым приращением частоты обновляются одним запросом (не более lemmaBufferSize лемм в запросе),
+     * id лемм в запросе упорядочены по возрастанию
      *
-     * @param lemmaStrings коллекция, содержащая значения лемм (String)
-     * @param siteId       id сайта, к которому относится лемма
-     * @return список объектов лемм, сохранённых в БД
+     * @param lemmaIdPagesQty Map: key = id леммы, value = количество новых страниц с леммой
      */
-    private List<Lemma> findSaveUpdateLemmasInDB(Collection<String> lemmaStrings, int siteId) {
-        int bufferSize = config.getLemmaBufferSize();
-
-        List<Lemma> foundResults = new ArrayList<>();
-
-        int bufferCounter = 0;
-        int totalCounter = 0;
-
-        int lemmasQty = lemmaStrings.size();
-
-        StringJoiner sqlConditionsUpdate = getSqlConditionsUpdate();
-        StringJoiner sqlConditionsSelect = getSqlConditionsSelect(siteId);
+    @Override
+    public void increaseFrequencies(Map<Integer, Integer> lemmaIdPagesQty) {
+        int bufferSize = Math.max(config.getLemmaBufferSize(), 1);
+        Map<Integer, List<Integer>> lemmaIdsByPagesQty = new TreeMap<>();
 
-        for (String currentLemma : lemmaStrings) {
-            StringJoiner subCondUpdate = getSubCondUpdate();
-            subCondUpdate.add(currentLemma);
-            subCondUpdate.add(String.valueOf(siteId));
+        for (Map.Entry<Integer, Integer> lemmaEntry : new TreeMap<>(lemmaIdPagesQty).entrySet()) {
+            lemmaIdsByPagesQty.computeIfAbsent(lemmaEntry.getValue(), key -> new ArrayList<>()).add(lemmaEntry.getKey());
+        }
 
-            sqlConditionsUpdate.add(subCondUpdate.toString());
-            sqlConditionsSelect.add(currentLemma);
-            ++bufferCounter;
-            ++totalCounter;
+        for (Map.Entry<Integer, List<Integer>> qtyEntry : lemmaIdsByPagesQty.entrySet()) {
+            List<Integer> lemmaIds = qtyEntry.getValue();
 
-            if (bufferCounter >= bufferSize || totalCounter >= lemmasQty) {
-                Query updateQuery = entityManager.createNativeQuery(sqlConditionsUpdate.toString());
-                Query selectQuery = entityManager.createQuery(sqlConditionsSelect.toString());
+            for (int from = 0; from < lemmaIds.size(); from += bufferSize) {
+                Query updateQuery = entityManager.createQuery("UPDATE Lemma SET frequency = frequency + :pagesQty "
+                        + "WHERE id IN :ids");
+                updateQuery.setParameter("pagesQty", qtyEntry.getKey());
+                updateQuery.setParameter("ids", lemmaIds.subList(from, Math.min(from + bufferSize, lemmaIds.size())));
                 updateQuery.executeUpdate();
-                List<Lemma> result = selectQuery.getResultList();
-                foundResults.addAll(result);
-                bufferCounter = 0;
-                sqlConditionsUpdate = getSqlConditionsUpdate();
-                sqlConditionsSelect = getSqlConditionsSelect(siteId);
             }
         }
-
-        return foundResults;
-    }
-
-    /**
-     * создание объекта StringJoiner, используемого для перечисления лемм в запросе в БД
-     *
-     * @return созданный объект StringJoiner
-     */
-    private StringJoiner getSubCondUpdate() {
-        String condDelimiter = "', ";
-        String condPrefix = "'";
-        String condSuffix = "";
-
-        return new StringJoiner(condDelimiter, condPrefix, condSuffix);
     }
 
     /**
-     * создание объекта StringJoiner для вставки лемм в БД
+     * уменьшение частоты лемм на 1 и удаление лемм, частота которых стала меньше 1
+     * запросы выполняются не более чем для lemmaBufferSize лемм, id лемм упорядочены по возрастанию
      *
-     * @return созданный объект StringJoiner
+     * @param lemmaIds id лемм
+     * @return значения удалённых лемм
      */
-    private StringJoiner getSqlConditionsUpdate() {
-        String qryDelimiterUpdate = ", 1), (";
-        String qryPrefixUpdate = "INSERT INTO lemma (lemma, site_id, frequency) VALUES (";
-        String qrySuffixUpdate = ", 1) ON DUPLICATE KEY UPDATE frequency = frequency + 1";
-
-        return new StringJoiner(qryDelimiterUpdate, qryPrefixUpdate, qrySuffixUpdate);
-    }
-
-    /**
-     * создание объекта StringJoiner для получения лемм из БД
-     *
-     * @return созданный объект StringJoiner
-     */
-    private StringJoiner getSqlConditionsSelect(int siteId) {
-        String qryDelimiterSelect = "', '";
-        String qryPrefixSelect = "FROM Lemma WHERE lemma in ('";
-        String qrySuffixSelect = "') AND siteId = " + siteId;
+    @Override
+    public List<String> decreaseFrequencies(Collection<Integer> lemmaIds) {
+        int bufferSize = Math.max(config.getLemmaBufferSize(), 1);
+        List<Integer> sortedIds = new ArrayList<>(new TreeSet<>(lemmaIds));
+        List<String> removedLemmas = new ArrayList<>();
+
+        for (int from = 0; from < sortedIds.size(); from += bufferSize) {
+            List<Integer> ids = sortedIds.subList(from, Math.min(from + bufferSize, sortedIds.size()));
+
+            Query updateQuery = entityManager.createQuery("UPDATE Lemma SET frequency = frequency - 1 WHERE id IN :ids");
+            updateQuery.setParameter("ids", ids);
+            updateQuery.executeUpdate();
+
+            Query selectQuery = entityManager.createQuery("SELECT l.lemma FROM Lemma l "
+                    + "WHERE l.id IN :ids AND l.frequency <= 0");
+            selectQuery.setParameter("ids", ids);
+            List<String> unusedLemmas = selectQuery.getResultList();
+
+            if (!unusedLemmas.isEmpty()) {
+                Query deleteQuery = entityManager.createQuery("DELETE FROM Lemma WHERE id IN :ids AND frequency <= 0");
+                deleteQuery.setParameter("ids", ids);
+                deleteQuery.executeUpdate();
+                removedLemmas.addAll(unusedLemmas);
+            }
+        }
 
-        return new StringJoiner(qryDelimiterSelect, qryPrefixSelect, qrySuffixSelect);
+        return removedLemmas;
     }
 
     /**
-     * получение сочетания значение леммы - id леммы из списка объектов лемм
+     * сохранение новых лемм сайта пакетами не более lemmaBufferSize лемм
+     * id лемм берутся из ключей, сгенерированных БД, повторный запрос лемм не выполняется
+     * если лемма уже есть в БД (словарь лемм сайта устарел), её частота увеличивается (ON DUPLICATE KEY UPDATE),
+     * а id = LAST_INSERT_ID(id) возвращает id существующей строки в качестве ключа; запрос с LAST_INSERT_ID
+     * в ON DUPLICATE KEY UPDATE драйвер MySQL не объединяет в многострочный INSERT, поэтому ключ получается
+     * для каждой леммы
      *
-     * @param lemmas список объектов лемм
-     * @return Map: key = значение леммы (String), value = id леммы в БД (Integer)
+     * @param lemmaPagesQty Map: key = значение новой леммы, value = количество страниц с леммой (начальная частота)
+     * @param siteId        id сайта
+     * @return Map: key = значение леммы, value = id сохранённой леммы
      */
-    private Map<String, Integer> createLemmasMap(List<Lemma> lemmas) {
-        Map<String, Integer> foundLemmasMap = new HashMap<>();
-
-        for (Lemma currentLemma : lemmas) {
+    @Override
+    public Map<String, Integer> insertLemmas(Map<String, Integer> lemmaPagesQty, int siteId) {
+        Map<String, Integer> insertedLemmas = new HashMap<>();
+        List<String> lemmaStrings = new ArrayList<>(lemmaPagesQty.keySet());
+
+        List<Integer> lemmaIds = jdbcBatchWriter.writeReturningKeys(
+                "INSERT INTO lemma (lemma, site_id, frequency) VALUES (?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency), id = LAST_INSERT_ID(id)",
+                lemmaStrings, config.getLemmaBufferSize(), (statement, lemma) -> {
+                    statement.setString(1, lemma);
+                    statement.setInt(2, siteId);
+                    statement.setInt(3, lemmaPagesQty.get(lemma));
+                });
+
+        if (lemmaIds.size() != lemmaStrings.size()) {
+            throw new IllegalStateException("Expected " + lemmaStrings.size() + " lemma ids, got " + lemmaIds.size()
+                    + " (site ID = " + siteId + ")");
+        }
 
-            foundLemmasMap.put(currentLemma.getLemma(), currentLemma.getId());
+        for (int i = 0; i < lemmaIds.size(); i++) {
+            insertedLemmas.put(lemmaStrings.get(i), lemmaIds.get(i));
         }
 
-        return foundLemmasMap;
+        return insertedLemmas;
     }
 
     /**
@@ -160,18 +158,12 @@ class LemmaNonStandardRepositoryImpl implements LemmaNonStandardRepository {
      */
     @Override
     public List<Lemma> findLemmas(Collection<String> lemmaStrings, int siteId) {
-        StringBuilder sqlQry = new StringBuilder();
-
-        String qryDelimiterSelect = "', '";
-        String qryPrefixSelect = "FROM Lemma WHERE lemma in ('";
-        String qrySuffixSelect = "')";
-
-        StringJoiner sqlConditionsSelect = new StringJoiner(qryDelimiterSelect, qryPrefixSelect, qrySuffixSelect);
-        for (String currentLemma : lemmaStrings) {
-            sqlConditionsSelect.add(currentLemma);
+        if (lemmaStrings.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        sqlQry.append(sqlConditionsSelect.toString());
+        StringBuilder sqlQry = new StringBuilder();
+        sqlQry.append("FROM Lemma WHERE lemma IN :lemmas");
 
         if (siteId != -1) {
             sqlQry.append(" AND siteId = ");
@@ -181,6 +173,7 @@ class LemmaNonStandardRepositoryImpl implements LemmaNonStandardRepository {
         sqlQry.append(" ORDER BY frequency");
 
         Query selectQuery = entityManager.createQuery(sqlQry.toString());
+        selectQuery.setParameter("lemmas", lemmaStrings);
         List<Lemma> result = selectQuery.getResultList();
 
         return result;
@@ -8,6 +8,8 @@ import searchengine.model.Page;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.StringJoiner;
 
@@ -18,6 +20,8 @@ import java.util.StringJoiner;
 @Transactional
 @Repository
 class PageNonStandardRepositoryImpl implements PageNonStandardRepository {
+    private static final int PATHS_CHUNK_SIZE = 1000; // максимальное количество ссылок в одном запросе
+
     private final EntityManager entityManager;
 
     private final Config config;
@@ -95,4 +99,189 @@ class PageNonStandardRepositoryImpl implements PageNonStandardRepository {
         Query deleteQuery = entityManager.createQuery(sqlQry.toString());
         int result = deleteQuery.executeUpdate();
     }
+
+    /**
+     * сохранение заголовка и текста страницы, извлечённых при индексации
+     *
+     * @param pageId    id страницы
+     * @param pageTitle заголовок страницы
+     * @param pageText  текст страницы без HTML разметки
+     */
+    @Override
+    public void updateTextData(int pageId, String pageTitle, String pageText) {
+        Query updateQuery = entityManager.createQuery("UPDATE Page SET pageTitle = :title, pageText = :text WHERE id = :id");
+        updateQuery.setParameter("title", pageTitle);
+        updateQuery.setParameter("text", pageText);
+        updateQuery.setParameter("id", pageId);
+        updateQuery.executeUpdate();
+    }
+
+    /**
+     * получение данных страниц, необходимых для вывода результатов поиска, без загрузки HTML кода
+     *
+     * @param ids перечень ID страниц
+     * @return список массивов: id страницы, ссылка на страницу, заголовок, текст
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> findSearchDataByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        StringJoiner qryCond = new StringJoiner(", ", "(", ")");
+
+        for (Integer id : ids) {
+            qryCond.add(String.valueOf(id));
+        }
+
+        StringBuilder sqlQry = new StringBuilder();
+        sqlQry.append("SELECT p.id, p.pageUrl, p.pageTitle, p.pageText FROM Page p WHERE p.id IN ");
+        sqlQry.append(qryCond.toString());
+
+        Query selectQuery = entityManager.createQuery(sqlQry.toString());
+        List<Object[]> result = selectQuery.getResultList();
+
+        return result;
+    }
+
+    /**
+     * получение сохранённых данных для повторной индексации страниц сайта
+     *
+     * @param siteId id сайта
+     * @return список массивов: id страницы, ссылка на страницу, код ответа, ETag, Last-Modified, хэш контента
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> findValidatorsBySiteId(int siteId) {
+        Query selectQuery = entityManager.createQuery("SELECT p.id, p.pageUrl, p.responseCode, p.etag, p.lastModified, "
+                + "p.contentHash FROM Page p WHERE p.siteId = :siteId");
+        selectQuery.setParameter("siteId", siteId);
+        List<Object[]> result = selectQuery.getResultList();
+
+        return result;
+    }
+
+    /**
+     * сохранение заголовков ETag и Last-Modified страницы
+     *
+     * @param pageId       id страницы
+     * @param etag         заголовок ETag
+     * @param lastModified заголовок Last-Modified
+     */
+    @Override
+    public void updateValidators(int pageId, String etag, String lastModified) {
+        Query updateQuery = entityManager.createQuery("UPDATE Page SET etag = :etag, lastModified = :lastModified WHERE id = :id");
+        updateQuery.setParameter("etag", etag);
+        updateQuery.setParameter("lastModified", lastModified);
+        updateQuery.setParameter("id", pageId);
+        updateQuery.executeUpdate();
+    }
+
+    /**
+     * удаление страниц по перечню ID
+     *
+     * @param ids перечень ID страниц
+     */
+    @Override
+    public void deleteByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Query deleteQuery = entityManager.createQuery("DELETE FROM Page WHERE id IN :ids");
+        deleteQuery.setParameter("ids", ids);
+        deleteQuery.executeUpdate();
+    }
+
+    /**
+     * получение SimHash проиндексированных страниц сайта (кроме страниц, сохранённых как почти одинаковые)
+     *
+     * @param siteId id сайта
+     * @return список массивов: id страницы, SimHash текста
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> findSimHashesBySiteId(int siteId) {
+        Query selectQuery = entityManager.createQuery("SELECT p.id, p.simHash FROM Page p WHERE p.siteId = :siteId "
+                + "AND p.responseCode = 200 AND p.simHash IS NOT NULL AND p.aliasOf IS NULL");
+        selectQuery.setParameter("siteId", siteId);
+        List<Object[]> result = selectQuery.getResultList();
+
+        return result;
+    }
+
+    /**
+     * сохранение страницы как почти одинаковой с другой страницей сайта
+     *
+     * @param pageId  id страницы
+     * @param aliasOf id почти одинаковой проиндексированной страницы
+     */
+    @Override
+    public void updateAliasOf(int pageId, int aliasOf) {
+        Query updateQuery = entityManager.createQuery("UPDATE Page SET aliasOf = :aliasOf WHERE id = :id");
+        updateQuery.setParameter("aliasOf", aliasOf);
+        updateQuery.setParameter("id", pageId);
+        updateQuery.executeUpdate();
+    }
+
+    /**
+     * удаление страниц, сохранённых как почти одинаковые со страницами из перечня
+     *
+     * @param ids перечень ID проиндексированных страниц
+     */
+    @Override
+    public void deleteAliasesOf(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Query deleteQuery = entityManager.createQuery("DELETE FROM Page WHERE aliasOf IN :ids");
+        deleteQuery.setParameter("ids", ids);
+        deleteQuery.executeUpdate();
+    }
+
+    /**
+     * получение ссылок на страницы сайта, сохранённые в БД
+     *
+     * @param siteId id сайта
+     * @return ссылки на страницы от корня сайта
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> findPathsBySiteId(int siteId) {
+        Query selectQuery = entityManager.createQuery("SELECT p.pageUrl FROM Page p WHERE p.siteId = :siteId");
+        selectQuery.setParameter("siteId", siteId);
+        List<String> result = selectQuery.getResultList();
+
+        return result;
+    }
+
+    /**
+     * получение id страниц сайта по перечню ссылок
+     * ссылки передаются в запрос порциями не более PATHS_CHUNK_SIZE
+     *
+     * @param siteId id сайта
+     * @param paths  ссылки на страницы от корня сайта
+     * @return перечень id страниц, сохранённых в БД
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Integer> findIdsByPaths(int siteId, Collection<String> paths) {
+        List<Integer> result = new ArrayList<>();
+        List<String> pathsList = new ArrayList<>(paths);
+
+        for (int from = 0; from < pathsList.size(); from += PATHS_CHUNK_SIZE) {
+            List<String> chunk = pathsList.subList(from, Math.min(from + PATHS_CHUNK_SIZE, pathsList.size()));
+
+            Query selectQuery = entityManager.createQuery("SELECT p.id FROM Page p WHERE p.siteId = :siteId "
+                    + "AND p.pageUrl IN :paths");
+            selectQuery.setParameter("siteId", siteId);
+            selectQuery.setParameter("paths", chunk);
+            List<Integer> chunkResult = selectQuery.getResultList();
+            result.addAll(chunkResult);
+        }
+
+        return result;
+    }
 }
@@ -1,6 +1,8 @@
 package searchengine.repository;
 
-import java.util.Map;
+import searchengine.model.SearchIndex;
+
+import java.util.List;
 
 /**
  * интерфейс, описывающий операции с индексами страниц в БД
@@ -8,13 +10,18 @@ import java.util.Map;
  */
 public interface SearchIndexNonStandardRepository {
     /**
-     * создание и сохранение индексов в БД
+     * сохранение индексов в БД
+     *
+     * @param searchIndexes индексы страниц
+     */
+    void insertIndexes(List<SearchIndex> searchIndexes);
+
+    /**
+     * массовая загрузка индексов в БД командой LOAD DATA LOCAL INFILE
      *
-     * @param lemmasMap           Map: key = значение леммы (String), value = id леммы в БД (Integer)
-     * @param rankedPageLemmasMap Map: key = значение леммы (String), value = ранг леммы на странице (Float)
-     * @param pageId              id страницы
+     * @param searchIndexes индексы страниц
      */
-    void saveIndexes(Map<String, Integer> lemmasMap, Map<String, Integer> rankedPageLemmasMap, Integer pageId);
+    void loadIndexes(List<SearchIndex> searchIndexes);
 
     /**
      * удаление всех индексов, относящихся к странице
@@ -29,4 +36,13 @@ public interface SearchIndexNonStandardRepository {
      * @param siteId id сайта
      */
     void deleteBySiteId(int siteId);
+
+    /**
+     * получение порции индексов, упорядоченных по id, вместе с id сайта, к которому относится лемма
+     *
+     * @param lastId id последнего полученного индекса (порция начинается со следующего)
+     * @param limit  максимальное количество индексов в порции
+     * @return список массивов: id индекса, id леммы, id страницы, ранг леммы, id сайта
+     */
+    List<Object[]> findIndexesAfterId(int lastId, int limit);
 }
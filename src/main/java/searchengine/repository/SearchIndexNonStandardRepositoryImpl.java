@@ -4,10 +4,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.config.Config;
+import searchengine.model.SearchIndex;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
-import java.util.Map;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.StringJoiner;
 
 /**
@@ -18,25 +20,64 @@ import java.util.StringJoiner;
 @Transactional
 @Repository
 class SearchIndexNonStandardRepositoryImpl implements SearchIndexNonStandardRepository {
+    // способ записи индексов: многострочные INSERT, собираемые в текст запроса
+    private static final String SQL_WRITE_MODE = "sql";
+
     private final EntityManager entityManager;
 
     private final Config config;
 
+    private final JdbcBatchWriter jdbcBatchWriter;
+
     @Autowired
-    public SearchIndexNonStandardRepositoryImpl(EntityManager entityManager, Config config) {
+    public SearchIndexNonStandardRepositoryImpl(EntityManager entityManager, Config config,
+                                                JdbcBatchWriter jdbcBatchWriter) {
         this.entityManager = entityManager;
         this.config = config;
+        this.jdbcBatchWriter = jdbcBatchWriter;
+    }
+
+    /**
+     * сохранение индексов в БД пакетами не более indexBufferSize строк
+     * способ записи задаётся параметром indexWriteMode: batch - пакеты параметризованных запросов (JdbcBatchWriter),
+     * sql - многострочные INSERT, собираемые из значений в текст запроса (используется для сравнения производительности)
+     *
+     * @param searchIndexes индексы страниц
+     */
+    @Override
+    public void insertIndexes(List<SearchIndex> searchIndexes) {
+        if (SQL_WRITE_MODE.equals(config.getIndexWriteMode())) {
+            insertIndexesAsSql(searchIndexes);
+            return;
+        }
+
+        jdbcBatchWriter.write("INSERT INTO search_index (page_id, lemma_id, lemma_rank) VALUES (?, ?, ?)",
+                searchIndexes, config.getIndexBufferSize(), (statement, searchIndex) -> {
+                    statement.setInt(1, searchIndex.getPageId());
+                    statement.setInt(2, searchIndex.getLemmaId());
+                    statement.setFloat(3, searchIndex.getRank());
+                });
     }
 
     /**
-     * создание и сохранение индексов в БД
+     * массовая загрузка индексов в БД командой LOAD DATA LOCAL INFILE одной порцией
+     * используется при полной индексации сайта: строки передаются серверу файлом, без разбора запросов INSERT
+     * временные файлы создаются в папке bulkLoadDir
      *
-     * @param lemmasMap           Map: key = значение леммы (String), value = id леммы в БД (Integer)
-     * @param rankedPageLemmasMap Map: key = значение леммы (String), value = ранг леммы на странице (Float)
-     * @param pageId              id страницы
+     * @param searchIndexes индексы страниц
      */
     @Override
-    public void saveIndexes(Map<String, Integer> lemmasMap, Map<String, Integer> rankedPageLemmasMap, Integer pageId) {
+    public void loadIndexes(List<SearchIndex> searchIndexes) {
+        jdbcBatchWriter.loadData(Paths.get(config.getBulkLoadDir()), "search_index", "page_id, lemma_id, lemma_rank", searchIndexes,
+                searchIndex -> searchIndex.getPageId() + "\t" + searchIndex.getLemmaId() + "\t" + searchIndex.getRank());
+    }
+
+    /**
+     * сохранение индексов в БД многострочными INSERT, собранными из значений в текст запроса
+     *
+     * @param searchIndexes индексы страниц
+     */
+    private void insertIndexesAsSql(List<SearchIndex> searchIndexes) {
         int bufferSize = config.getIndexBufferSize();
 
         String qryDelimiterInsert = "), (";
@@ -46,25 +87,22 @@ class SearchIndexNonStandardRepositoryImpl implements SearchIndexNonStandardRepo
         int bufferCounter = 0;
         int totalCounter = 0;
 
-        int lemmasQty = rankedPageLemmasMap.size();
+        int indexesQty = searchIndexes.size();
         StringJoiner sqlConditionsInsert = new StringJoiner(qryDelimiterInsert, qryPrefixInsert, qrySuffixInsert);
 
-        for (String currentLemmaStr : rankedPageLemmasMap.keySet()) {
+        for (SearchIndex searchIndex : searchIndexes) {
             StringJoiner curValues = new StringJoiner(", ");
 
-            Integer currentLemmaId = lemmasMap.get(currentLemmaStr);
-            Integer currentLemmaRank = rankedPageLemmasMap.get(currentLemmaStr);
-
-            curValues.add(pageId.toString());
-            curValues.add(currentLemmaId.toString());
-            curValues.add(currentLemmaRank.toString());
+            curValues.add(String.valueOf(searchIndex.getPageId()));
+            curValues.add(String.valueOf(searchIndex.getLemmaId()));
+            curValues.add(String.valueOf(searchIndex.getRank()));
 
             sqlConditionsInsert.add(curValues.toString());
 
             ++bufferCounter;
             ++totalCounter;
 
-            if (bufferCounter >= bufferSize || totalCounter >= lemmasQty) {
+            if (bufferCounter >= bufferSize || totalCounter >= indexesQty) {
                 Query insertQuery = entityManager.createNativeQuery(sqlConditionsInsert.toString());
                 insertQuery.executeUpdate();
                 bufferCounter = 0;
@@ -104,4 +142,26 @@ class SearchIndexNonStandardRepositoryImpl implements SearchIndexNonStandardRepo
         int result = deleteQuery.executeUpdate();
     }
 
+    /**
+     * получение порции индексов, упорядоченных по id, вместе с id сайта, к которому относится лемма
+     *
+     * @param lastId id последнего полученного индекса (порция начинается со следующего)
+     * @param limit  максимальное количество индексов в порции
+     * @return список массивов: id индекса, id леммы, id страницы, ранг леммы, id сайта
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Object[]> findIndexesAfterId(int lastId, int limit) {
+        StringBuilder sqlQry = new StringBuilder();
+        sqlQry.append("SELECT si.id, si.lemmaId, si.pageId, si.rank, l.siteId FROM SearchIndex si, Lemma l ");
+        sqlQry.append("WHERE l.id = si.lemmaId AND si.id > ");
+        sqlQry.append(lastId);
+        sqlQry.append(" ORDER BY si.id");
+
+        Query selectQuery = entityManager.createQuery(sqlQry.toString());
+        selectQuery.setMaxResults(limit);
+        List<Object[]> result = selectQuery.getResultList();
+
+        return result;
+    }
 }
@@ -3,21 +3,37 @@ package searchengine.services;
 import lombok.Getter;
 import searchengine.model.Site;
 
-import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.net.URI;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * класс, описывающий сайт
  */
 @Getter
 class AuxSiteData {
-    private final String rootUrl;       // ссылка на сайт
+    private final String rootUrl;       // ссылка на сайт в каноническом виде без "/" в конце
     private final int siteId;           // ID сайта в таблице site
     private final int rootUrlLen;       // длина ссылки на сайт
     private final SiteMappingService siteMapper; // объект, используемый для сохранения страниц и запуска их индексации
     private final String userAgent; // user agent
     private final String referrer; // referrer
-    private final Set<String> checkedUrls;    // сет ссылок на страницы сайта, пройденные системой обхода страниц
+    private final UrlCanonicalizer urlCanonicalizer; // объект, приводящий ссылки сайта к каноническому виду
+    private final VisitedUrls checkedUrls;    // множество ссылок на страницы сайта, пройденных системой обхода страниц
+    private final String host;          // хост сайта, используется для ограничения частоты запросов
+    private final CrawlScheduler crawlScheduler; // планировщик обхода страниц
+    private final PageFetcher pageFetcher; // объект, используемый для получения страниц
+    private final CrawlBudget crawlBudget; // ограничения обхода сайта
+    private final AtomicInteger pendingTasks = new AtomicInteger(); // количество незавершённых заданий обхода
+    private final Map<String, StoredPage> storedPages = new ConcurrentHashMap<>(); // страницы предыдущей индексации, ещё не пройденные при текущем обходе
+    private final AtomicInteger notModifiedPagesQty = new AtomicInteger(); // количество неизменившихся страниц
+    private final CountDownLatch completion = new CountDownLatch(1); // завершение всех заданий обхода
+    private volatile RobotsRules robotsRules = RobotsRules.EMPTY; // правила обхода сайта из robots.txt
+    private volatile CrawlJournal crawlJournal = CrawlJournal.DISABLED; // журнал очереди обхода на диске
     private volatile boolean terminated = false; // статус прерывания процесса индексации
 
     /**
@@ -25,54 +41,194 @@ class AuxSiteData {
      *
      * @param site - сайт, для которого необходимо получить карту
      */
-    public AuxSiteData(Site site, SiteMappingService siteMapper, String userAgent, String referrer) {
-        String tempRootUrl = site.getUrl();
+    public AuxSiteData(Site site, SiteMappingService siteMapper, String userAgent, String referrer,
+                       CrawlScheduler crawlScheduler, PageFetcher pageFetcher, VisitedUrls checkedUrls,
+                       UrlCanonicalizer urlCanonicalizer, CrawlBudget crawlBudget) {
         this.siteId = site.getId();
         this.siteMapper = siteMapper;
         this.userAgent = userAgent;
         this.referrer = referrer;
+        this.crawlScheduler = crawlScheduler;
+        this.pageFetcher = pageFetcher;
+        this.checkedUrls = checkedUrls;
+        this.urlCanonicalizer = urlCanonicalizer;
+        this.crawlBudget = crawlBudget;
 
-        this.rootUrl = UtilService.getUrlWithoutSlash(tempRootUrl);
+        this.rootUrl = urlCanonicalizer.getRootUrl();
 
         this.rootUrlLen = rootUrl.length();
 
-        checkedUrls = new ConcurrentSkipListSet<>();
+        String tempHost = URI.create(rootUrl).getHost();
+        this.host = (tempHost == null) ? rootUrl : tempHost;
     }
 
     /**
-     * проверка, была ли страница уже пройдена системой обхода страниц сайта
+     * добавление страницы в множество пройденных страниц, если её там ещё нет
+     * приведение ссылке к виду без "/"
      *
      * @param url - ссылка на страницу
-     * @return true, если страница была пройдена, false в противном случае
+     * @return true, если страница добавлена; false, если страница уже была пройдена
      */
-    public boolean isUrlChecked(String url) {
-        String urlToCheck = UtilService.getUrlWithoutSlash(url);
-        return checkedUrls.contains(urlToCheck);
+    public boolean addCheckedUrl(String url) {
+        String urlToAdd = UtilService.getUrlWithoutSlash(url);
+
+        return checkedUrls.add(urlToAdd);
+    }
+
+    public void setRobotsRules(RobotsRules robotsRules) {
+        this.robotsRules = robotsRules;
+    }
+
+    public void setCrawlJournal(CrawlJournal crawlJournal) {
+        this.crawlJournal = crawlJournal;
     }
 
     /**
-     * добавление страницы в сет пройденных страниц
-     * приведение ссылке к виду без "/"
+     * получение ссылки на страницу от корня сайта
      *
-     * @param url - ссылка на страницу
+     * @param fullPageUrl полная ссылка на страницу (начинается с ссылки на сайт)
+     * @return ссылка на страницу от корня сайта
      */
-    public synchronized void addCheckedUrl(String url) {
-        String urlToAdd = UtilService.getUrlWithoutSlash(url);
+    public String getPageUrlFromRoot(String fullPageUrl) {
+        String pageUrl;
+        if (fullPageUrl.equals(rootUrl)) {
+            pageUrl = "/";
+        } else {
+            pageUrl = fullPageUrl.substring(rootUrlLen);
+        }
+
+        return pageUrl;
+    }
 
-        checkedUrls.add(urlToAdd);
+    /**
+     * проверка, разрешён ли обход страницы правилами robots.txt
+     *
+     * @param url полная ссылка на страницу
+     * @return true, если обход разрешён
+     */
+    public boolean isAllowedUrl(String url) {
+        return robotsRules.isAllowed(url);
     }
 
     /**
      * получение количества страниц, пройденных системой обхода страниц
      *
-     * @return
+     * @return количество страниц
      */
-    public int getCheckedUrlsQty() {
+    public long getCheckedUrlsQty() {
         return checkedUrls.size();
     }
 
+    /**
+     * добавление страниц, сохранённых при предыдущей индексации сайта
+     *
+     * @param pages key = ссылка на страницу от корня сайта, value = сохранённые данные страницы
+     */
+    public void putStoredPages(Map<String, StoredPage> pages) {
+        storedPages.putAll(pages);
+    }
+
+    /**
+     * получение и удаление из перечня данных страницы, сохранённых при предыдущей индексации
+     *
+     * @param pageUrl ссылка на страницу от корня сайта
+     * @return сохранённые данные страницы; null, если страница не была сохранена ранее
+     */
+    public StoredPage takeStoredPage(String pageUrl) {
+        return storedPages.remove(pageUrl);
+    }
+
+    /**
+     * получение страниц предыдущей индексации, не пройденных при текущем обходе
+     *
+     * @return сохранённые данные страниц
+     */
+    public Collection<StoredPage> getRemainingStoredPages() {
+        return storedPages.values();
+    }
+
+    /**
+     * учёт страницы, не изменившейся с предыдущей индексации
+     */
+    public void pageNotModified() {
+        notModifiedPagesQty.incrementAndGet();
+    }
+
+    public int getNotModifiedPagesQty() {
+        return notModifiedPagesQty.get();
+    }
+
     public void terminate() {
         terminated = true;
     }
 
+    /**
+     * проверка, должен ли обход сайта быть прекращён: индексация прервана, либо исчерпаны ограничения
+     * объёма данных или времени обхода
+     *
+     * @return true, если новые страницы не должны запрашиваться
+     */
+    public boolean isCrawlStopped() {
+        return terminated || crawlBudget.isExhausted();
+    }
+
+    /**
+     * передача задания обхода страницы в планировщик
+     * задание учитывается как незавершённое до вызова taskFinished
+     *
+     * @param task задание обхода страницы
+     */
+    public void submitTask(CrawlTask task) {
+        pendingTasks.incrementAndGet();
+        crawlScheduler.submit(host, task);
+    }
+
+    /**
+     * постановка страницы в очередь обхода с записью в журнал очереди
+     *
+     * @param url      ссылка на страницу
+     * @param depth    глубина страницы от главной страницы сайта
+     * @param lastmod  дата изменения страницы из карты сайта; null, если не задана
+     * @param priority приоритет страницы
+     */
+    public void submitPage(String url, int depth, Instant lastmod, double priority) {
+        crawlJournal.queued(getPageUrlFromRoot(url), depth, lastmod, priority);
+        submitTask(new LinkProcessor(url, this, depth, lastmod, priority));
+    }
+
+    /**
+     * постановка начальных заданий обхода
+     * на время выполнения submitter обход считается незавершённым: он не может закончиться раньше, чем будут поставлены
+     * все задания, и заканчивается, если не поставлено ни одного задания
+     *
+     * @param submitter действие, ставящее задания в очередь
+     */
+    public void submitInitialTasks(Runnable submitter) {
+        pendingTasks.incrementAndGet();
+        try {
+            submitter.run();
+        } finally {
+            taskFinished();
+        }
+    }
+
+    /**
+     * отметка о завершении задания обхода страницы
+     * новые задания создаются только незавершёнными заданиями, поэтому, когда счётчик достигает нуля, обход сайта закончен
+     */
+    public void taskFinished() {
+        if (pendingTasks.decrementAndGet() == 0) {
+            completion.countDown();
+        }
+    }
+
+    /**
+     * ожидание завершения обхода сайта
+     *
+     * @throws InterruptedException исключение, если поток был прерван во время ожидания
+     */
+    public void awaitCompletion() throws InterruptedException {
+        completion.await();
+    }
+
 }
@@ -0,0 +1,82 @@
+package searchengine.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * вероятностное множество ссылок (фильтр Блума) фиксированного размера, не зависящего от количества ссылок
+ * используется для очень больших сайтов, когда память важнее полноты обхода:
+ * с вероятностью ложного срабатывания новая ссылка считается уже пройденной и страница пропускается
+ * (при 10 битах на ссылку - около 1%)
+ * биты устанавливаются без блокировок (compareAndSet); при одновременном добавлении одной ссылки двумя потоками
+ * оба могут получить true, и страница будет запрошена дважды
+ */
+final class BloomUrlFilter implements VisitedUrls {
+    // количество хэш-функций
+    private static final int HASHES_QTY = 7;
+    private final AtomicLongArray bits; // битовый массив фильтра
+    private final long bitsQty;         // количество битов
+    private final LongAdder size = new LongAdder(); // количество добавленных ссылок
+
+    /**
+     * конструктор класса
+     *
+     * @param bitsQty размер фильтра, бит
+     */
+    BloomUrlFilter(long bitsQty) {
+        int wordsQty = (int) Math.min((bitsQty + 63) / 64, Integer.MAX_VALUE - 8);
+        this.bits = new AtomicLongArray(wordsQty);
+        this.bitsQty = wordsQty * 64L;
+    }
+
+    /**
+     * добавление ссылки: установка HASHES_QTY битов, позиции которых вычисляются по отпечатку ссылки
+     * (двойное хэширование: h1 + i * h2)
+     *
+     * @param url ссылка на страницу
+     * @return true, если хотя бы один бит был установлен, т.е. ссылки точно не было в фильтре
+     */
+    @Override
+    public boolean add(String url) {
+        long fingerprint = UtilService.getFingerprint(url);
+        long hash1 = fingerprint & 0xffffffffL;
+        long hash2 = (fingerprint >>> 32) | 1;
+        boolean added = false;
+
+        for (int i = 0; i < HASHES_QTY; i++) {
+            long bitPos = Long.remainderUnsigned(hash1 + i * hash2, bitsQty);
+            added |= setBit(bitPos);
+        }
+
+        if (added) {
+            size.increment();
+        }
+        return added;
+    }
+
+    @Override
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * установка бита
+     *
+     * @param bitPos номер бита
+     * @return true, если бит не был установлен
+     */
+    private boolean setBit(long bitPos) {
+        int wordPos = (int) (bitPos >>> 6);
+        long mask = 1L << (bitPos & 63);
+
+        while (true) {
+            long word = bits.get(wordPos);
+            if ((word & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(wordPos, word, word | mask)) {
+                return true;
+            }
+        }
+    }
+}
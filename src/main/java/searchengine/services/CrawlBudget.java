@@ -0,0 +1,111 @@
+package searchengine.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ограничения обхода одного сайта: глубина ссылок, количество страниц, объём полученных данных и время обхода
+ * ограничение количества страниц применяется при постановке заданий в очередь: задания сверх него не создаются,
+ * а уже поставленные в очередь выполняются; при превышении объёма данных или времени обхода
+ * оставшиеся в очереди задания завершаются без запроса страниц
+ * нулевое значение ограничения означает его отсутствие
+ */
+final class CrawlBudget {
+    private final int maxDepth;         // максимальная глубина ссылки от главной страницы
+    private final int maxPages;         // максимальное количество страниц
+    private final long maxBytes;        // максимальный объём полученных данных, байт
+    private final long maxNanos;        // максимальное время обхода, нс
+    private final long deadline;        // время окончания обхода, нс (System.nanoTime)
+    private final AtomicInteger pagesQty = new AtomicInteger();   // количество страниц, поставленных в очередь
+    private final AtomicLong bytesQty = new AtomicLong();         // объём полученных данных, байт
+    private volatile boolean pagesLimitReached = false; // достигнуто ли ограничение количества страниц
+    private volatile String stopReason = null;  // ограничение, остановившее обход (объём данных, время); null, если обход не остановлен
+
+    /**
+     * конструктор класса; время обхода отсчитывается с момента создания
+     *
+     * @param maxDepth   максимальная глубина ссылки от главной страницы
+     * @param maxPages   максимальное количество страниц
+     * @param maxBytes   максимальный объём полученных данных, байт
+     * @param maxMinutes максимальное время обхода, мин
+     */
+    CrawlBudget(int maxDepth, int maxPages, long maxBytes, int maxMinutes) {
+        this.maxDepth = Math.max(maxDepth, 0);
+        this.maxPages = Math.max(maxPages, 0);
+        this.maxBytes = Math.max(maxBytes, 0);
+        this.maxNanos = TimeUnit.MINUTES.toNanos(Math.max(maxMinutes, 0));
+        this.deadline = System.nanoTime() + maxNanos;
+    }
+
+    /**
+     * проверка ограничения глубины
+     *
+     * @param depth глубина ссылки от главной страницы
+     * @return true, если страницу с такой глубиной можно обходить
+     */
+    public boolean allowsDepth(int depth) {
+        return maxDepth == 0 || depth <= maxDepth;
+    }
+
+    /**
+     * учёт страницы, ставящейся в очередь обхода
+     *
+     * @return true, если страницу можно поставить в очередь
+     */
+    public boolean tryAcquirePage() {
+        if (isExhausted()) {
+            return false;
+        }
+        if (maxPages > 0 && pagesQty.incrementAndGet() > maxPages) {
+            pagesLimitReached = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * учёт полученных данных
+     *
+     * @param bytes объём данных, байт
+     */
+    public void addBytes(long bytes) {
+        if (bytesQty.addAndGet(bytes) > maxBytes && maxBytes > 0) {
+            stop("bytes: " + maxBytes);
+        }
+    }
+
+    /**
+     * проверка, исчерпаны ли ограничения объёма данных или времени обхода
+     *
+     * @return true, если обход сайта должен быть прекращён
+     */
+    public boolean isExhausted() {
+        if (maxNanos > 0 && stopReason == null && System.nanoTime() - deadline > 0) {
+            stop("time: " + TimeUnit.NANOSECONDS.toMinutes(maxNanos) + " min");
+        }
+        return stopReason != null;
+    }
+
+    /**
+     * получение описания достигнутого ограничения
+     *
+     * @return описание ограничения; null, если ни одно ограничение, кроме глубины, не достигнуто
+     */
+    public String getLimitReached() {
+        if (stopReason != null) {
+            return stopReason;
+        }
+        return pagesLimitReached ? "pages: " + maxPages : null;
+    }
+
+    public long getBytesQty() {
+        return bytesQty.get();
+    }
+
+    private synchronized void stop(String reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+        }
+    }
+}
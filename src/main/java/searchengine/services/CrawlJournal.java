@@ -0,0 +1,333 @@
+package searchengine.services;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * журнал очереди обхода сайта на диске, позволяющий продолжить обход после остановки индексации или перезапуска приложения
+ * в журнал (файл .log) дописываются записи о страницах, поставленных в очередь обхода, и о пройденных страницах;
+ * каждые SNAPSHOT_INTERVAL записей очередь непройденных страниц записывается в снимок (файл .snapshot),
+ * а журнал очищается; при открытии состояние восстанавливается из снимка и журнала
+ * формат строк: "Q depth priority lastmod path" - страница поставлена в очередь, "D path" - страница пройдена,
+ * "S" - ссылки из карт сайта поставлены в очередь (поля разделены табуляцией)
+ * пройденными считаются также страницы, уже сохранённые в таблице page: они сверяются при продолжении обхода
+ * ошибка записи отключает журнал, не прерывая обход
+ */
+@Log4j2
+final class CrawlJournal {
+    static final CrawlJournal DISABLED = new CrawlJournal(null, null);
+
+    private static final int SNAPSHOT_INTERVAL = 10000; // количество записей журнала между снимками
+
+    private final Path snapshotFile;    // файл снимка очереди
+    private final Path logFile;         // файл журнала
+    private final Map<String, Entry> pending = new LinkedHashMap<>(); // key = ссылка от корня сайта, value = непройденная страница
+    private boolean seeded = false;     // поставлены ли в очередь ссылки из карт сайта
+    private boolean restored = false;   // восстановлено ли состояние предыдущего обхода
+    private BufferedWriter writer;      // запись журнала; null, если журнал отключён
+    private int recordsQty = 0;         // количество записей журнала после последнего снимка
+
+    private CrawlJournal(Path snapshotFile, Path logFile) {
+        this.snapshotFile = snapshotFile;
+        this.logFile = logFile;
+    }
+
+    /**
+     * открытие журнала очереди обхода сайта
+     *
+     * @param dir     папка для хранения журналов; пустое значение - журнал не ведётся
+     * @param siteUrl ссылка на сайт
+     * @param resume  true - восстановить состояние предыдущего обхода; false - удалить его и начать журнал заново
+     * @return журнал; DISABLED, если журнал не ведётся или не может быть открыт
+     */
+    static CrawlJournal open(String dir, String siteUrl, boolean resume) {
+        if (dir == null || dir.isBlank()) {
+            return DISABLED;
+        }
+
+        try {
+            Path directory = Paths.get(dir);
+            Files.createDirectories(directory);
+
+            String name = getFileName(siteUrl);
+            CrawlJournal journal = new CrawlJournal(directory.resolve(name + ".snapshot"), directory.resolve(name + ".log"));
+
+            if (resume) {
+                journal.restore();
+            }
+            journal.writeSnapshot();
+
+            return journal;
+        } catch (IOException ex) {
+            log.warn("Не удалось открыть журнал обхода сайта " + siteUrl + ": " + ex.getMessage());
+            return DISABLED;
+        }
+    }
+
+    /**
+     * проверка наличия сохранённого состояния обхода сайта
+     *
+     * @param dir     папка для хранения журналов
+     * @param siteUrl ссылка на сайт
+     * @return true, если существует снимок или журнал
+     */
+    static boolean exists(String dir, String siteUrl) {
+        if (dir == null || dir.isBlank()) {
+            return false;
+        }
+
+        Path directory = Paths.get(dir);
+        String name = getFileName(siteUrl);
+
+        return Files.exists(directory.resolve(name + ".snapshot")) || Files.exists(directory.resolve(name + ".log"));
+    }
+
+    /**
+     * проверка, восстановлено ли состояние предыдущего обхода
+     *
+     * @return true, если обход продолжается
+     */
+    public synchronized boolean isRestored() {
+        return restored;
+    }
+
+    public synchronized boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * получение непройденных страниц восстановленного обхода
+     *
+     * @return страницы в порядке постановки в очередь
+     */
+    public synchronized List<Entry> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * запись о постановке страницы в очередь обхода
+     *
+     * @param path     ссылка на страницу от корня сайта
+     * @param depth    глубина страницы
+     * @param lastmod  дата изменения страницы из карты сайта; null, если не задана
+     * @param priority приоритет страницы
+     */
+    public synchronized void queued(String path, int depth, Instant lastmod, double priority) {
+        if (writer == null) {
+            return;
+        }
+
+        Entry entry = new Entry(path, depth, lastmod, priority);
+        pending.put(path, entry);
+        append(entry.toRecord());
+    }
+
+    /**
+     * запись о пройденной странице
+     *
+     * @param path ссылка на страницу от корня сайта
+     */
+    public synchronized void done(String path) {
+        if (writer != null && pending.remove(path) != null) {
+            append("D\t" + path);
+        }
+    }
+
+    /**
+     * запись о постановке в очередь ссылок из карт сайта
+     */
+    public synchronized void seeded() {
+        if (writer != null) {
+            seeded = true;
+            append("S");
+        }
+    }
+
+    /**
+     * закрытие журнала с сохранением состояния для продолжения обхода
+     */
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writeSnapshot();
+        } catch (IOException ex) {
+            log.warn("Не удалось сохранить снимок очереди обхода " + snapshotFile + ": " + ex.getMessage());
+        }
+        closeWriter();
+    }
+
+    /**
+     * закрытие журнала и удаление его файлов после завершения обхода
+     */
+    public synchronized void delete() {
+        if (snapshotFile == null) {
+            return;
+        }
+
+        closeWriter();
+        try {
+            Files.deleteIfExists(snapshotFile);
+            Files.deleteIfExists(logFile);
+        } catch (IOException ex) {
+            log.warn("Не удалось удалить журнал обхода " + logFile + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * восстановление состояния из снимка и журнала
+     * неполная последняя строка журнала (при аварийном завершении) пропускается
+     *
+     * @throws IOException исключение при ошибке чтения
+     */
+    private void restore() throws IOException {
+        for (Path file : List.of(snapshotFile, logFile)) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+            restored = true;
+
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    apply(line);
+                }
+            }
+        }
+    }
+
+    private void apply(String line) {
+        String[] fields = line.split("\t", 5);
+
+        try {
+            if (fields[0].equals("S")) {
+                seeded = true;
+            } else if (fields[0].equals("D") && fields.length == 2) {
+                pending.remove(fields[1]);
+            } else if (fields[0].equals("Q") && fields.length == 5) {
+                Instant lastmod = fields[3].equals("-") ? null : Instant.ofEpochMilli(Long.parseLong(fields[3]));
+                pending.put(fields[4], new Entry(fields[4], Integer.parseInt(fields[1]), lastmod,
+                        Double.parseDouble(fields[2])));
+            }
+        } catch (NumberFormatException ex) {
+            log.warn("Пропущена повреждённая запись журнала обхода: " + line);
+        }
+    }
+
+    /**
+     * запись снимка очереди и очистка журнала
+     * снимок записывается во временный файл и заменяет прежний атомарно; если журнал не был очищен,
+     * повторное применение его записей к новому снимку не изменяет состояние
+     *
+     * @throws IOException исключение при ошибке записи
+     */
+    private void writeSnapshot() throws IOException {
+        closeWriter();
+
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (BufferedWriter snapshotWriter = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            if (seeded) {
+                snapshotWriter.write("S\n");
+            }
+            for (Entry entry : pending.values()) {
+                snapshotWriter.write(entry.toRecord());
+                snapshotWriter.write('\n');
+            }
+        }
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        recordsQty = 0;
+    }
+
+    /**
+     * добавление записи в журнал; запись передаётся операционной системе сразу,
+     * поэтому сохраняется при аварийном завершении приложения
+     *
+     * @param record запись
+     */
+    private void append(String record) {
+        try {
+            writer.write(record);
+            writer.write('\n');
+            writer.flush();
+
+            if (++recordsQty >= SNAPSHOT_INTERVAL) {
+                writeSnapshot();
+            }
+        } catch (IOException ex) {
+            log.warn("Ошибка записи журнала обхода " + logFile + ", журнал отключён: " + ex.getMessage());
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            log.warn("Ошибка закрытия журнала обхода " + logFile + ": " + ex.getMessage());
+        }
+        writer = null;
+    }
+
+    private static String getFileName(String siteUrl) {
+        return "site-" + Long.toHexString(UtilService.getFingerprint(UtilService.getUrlWithoutSlash(siteUrl)));
+    }
+
+    /**
+     * страница в очереди обхода
+     */
+    static final class Entry {
+        private final String path;      // ссылка на страницу от корня сайта
+        private final int depth;        // глубина страницы
+        private final Instant lastmod;  // дата изменения страницы из карты сайта; null, если не задана
+        private final double priority;  // приоритет страницы
+
+        Entry(String path, int depth, Instant lastmod, double priority) {
+            this.path = path;
+            this.depth = depth;
+            this.lastmod = lastmod;
+            this.priority = priority;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public Instant getLastmod() {
+            return lastmod;
+        }
+
+        public double getPriority() {
+            return priority;
+        }
+
+        private String toRecord() {
+            return "Q\t" + depth + "\t" + priority + "\t" + (lastmod == null ? "-" : lastmod.toEpochMilli()) + "\t" + path;
+        }
+    }
+}
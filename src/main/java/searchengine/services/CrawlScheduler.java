@@ -0,0 +1,273 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+
+import javax.annotation.PreDestroy;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * планировщик обхода страниц, соблюдающий ограничение частоты запросов к каждому хосту
+ * для каждого хоста используется "корзина токенов": не более crawlRate запросов в секунду и не более crawlBurst запросов подряд;
+ * если на сайте задан Crawl-delay, частота уменьшается до 1 запроса за Crawl-delay секунд
+ * задания, для которых ещё не наступило время, ожидают в очереди хоста и не занимают потоков:
+ * очередь разбирается таймером в момент появления следующего токена
+ * очередь хоста упорядочена по глубине страницы, приоритету и порядку постановки в очередь (см. CrawlTask)
+ * задания выполняются в собственном пуле из crawlThreads потоков (общее ограничение для всех сайтов);
+ * одновременно для одного хоста выполняется не более crawlSiteThreads заданий
+ */
+@Component
+class CrawlScheduler {
+    // порядок заданий в очереди хоста: глубина, приоритет, порядок постановки в очередь
+    private static final Comparator<QueuedTask> TASK_ORDER = Comparator
+            .<QueuedTask>comparingInt(queued -> queued.task.getDepth())
+            .thenComparing(queued -> queued.task.getPriority(), Comparator.reverseOrder())
+            .thenComparingLong(queued -> queued.sequence);
+
+    private final Map<String, HostQueue> hosts = new ConcurrentHashMap<>(); // очереди хостов
+    private final ScheduledExecutorService timer;   // таймер разбора очередей хостов
+    private final ThreadPoolExecutor executor;      // пул потоков, выполняющий задания
+    private final double rate;                      // максимальное количество запросов к хосту в секунду
+    private final int burst;                        // максимальное количество запросов к хосту подряд
+    private final int siteThreads;                  // максимальное количество одновременных заданий для хоста
+    private final AtomicInteger activeTasks = new AtomicInteger(); // количество выполняемых заданий
+
+    @Autowired
+    public CrawlScheduler(Config config) {
+        this.rate = config.getCrawlRate();
+        this.burst = Math.max(config.getCrawlBurst(), 1);
+        this.siteThreads = Math.max(config.getCrawlSiteThreads(), 1);
+
+        int threadsQty = Math.max(config.getCrawlThreads(), 1);
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threadsQty, threadsQty, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "crawl-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crawl-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * остановка таймера и пула потоков при завершении работы приложения
+     */
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * постановка задания в очередь хоста
+     * задание выполняется сразу, если для хоста есть свободный токен и очередь пуста
+     *
+     * @param host хост, к которому относится страница
+     * @param task задание
+     */
+    public void submit(String host, CrawlTask task) {
+        getHostQueue(host).submit(task);
+    }
+
+    /**
+     * установка значения Crawl-delay из robots.txt
+     *
+     * @param host       хост
+     * @param crawlDelay минимальный интервал между запросами, с
+     */
+    public void setCrawlDelay(String host, double crawlDelay) {
+        if (crawlDelay > 0) {
+            getHostQueue(host).setRate(Math.min(rate > 0 ? rate : Double.MAX_VALUE, 1 / crawlDelay), 1);
+        } else {
+            getHostQueue(host).setRate(rate, burst);
+        }
+    }
+
+    /**
+     * получение количества потоков пула, выполняющего задания
+     *
+     * @return количество потоков
+     */
+    public int getThreadsQty() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * получение пула потоков обхода страниц
+     * используется заданиями для обработки полученных асинхронно страниц
+     *
+     * @return пул потоков
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * получение количества выполняемых в данный момент заданий (запросов страниц и их обработки)
+     *
+     * @return количество заданий
+     */
+    public int getActiveTasksQty() {
+        return activeTasks.get();
+    }
+
+    /**
+     * получение количества заданий, ожидающих выполнения: в очередях хостов и в очереди пула потоков
+     *
+     * @return количество заданий
+     */
+    public int getQueuedTasksQty() {
+        int queuedQty = executor.getQueue().size();
+        for (HostQueue hostQueue : hosts.values()) {
+            queuedQty += hostQueue.size();
+        }
+        return queuedQty;
+    }
+
+    private HostQueue getHostQueue(String host) {
+        return hosts.computeIfAbsent(host, key -> new HostQueue(rate, burst));
+    }
+
+    /**
+     * очередь заданий хоста, корзина токенов и счётчик выполняемых заданий хоста
+     * все поля защищены блокировкой экземпляра
+     */
+    private final class HostQueue {
+        private final Queue<QueuedTask> tasks = new PriorityQueue<>(TASK_ORDER); // задания, ожидающие своего времени
+        private long sequence = 0;          // номер следующего задания в порядке постановки в очередь
+        private double tokensPerNano;       // скорость пополнения корзины, токенов в наносекунду
+        private double capacity;            // вместимость корзины
+        private double tokens;              // текущее количество токенов
+        private long lastRefill;            // время последнего пополнения корзины, нс
+        private boolean timerScheduled = false; // запланирован ли разбор очереди таймером
+        private int activeQty = 0;          // количество выполняемых заданий хоста
+
+        private HostQueue(double rate, int burst) {
+            setRate(rate, burst);
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        private synchronized void setRate(double rate, int burst) {
+            this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = burst;
+            this.tokens = Math.min(tokens, capacity);
+        }
+
+        private synchronized void submit(CrawlTask task) {
+            tasks.add(new QueuedTask(task, sequence++));
+            dispatch();
+        }
+
+        private synchronized void onTimer() {
+            timerScheduled = false;
+            dispatch();
+        }
+
+        private synchronized void onTaskFinished() {
+            --activeQty;
+            dispatch();
+        }
+
+        private synchronized int size() {
+            return tasks.size();
+        }
+
+        /**
+         * передача в пул потоков заданий, для которых есть токены
+         * если токенов нет, разбор очереди планируется на момент появления следующего токена;
+         * если для хоста уже выполняется siteThreads заданий, очередь разбирается по завершении одного из них
+         * отменённые задания передаются в пул без ожидания
+         */
+        private void dispatch() {
+            while (!tasks.isEmpty()) {
+                CrawlTask task = tasks.peek().task;
+
+                if (!task.isCancelled()) {
+                    if (activeQty >= siteThreads) {
+                        return;
+                    }
+                    long waitNanos = tryAcquire();
+                    if (waitNanos > 0) {
+                        if (!timerScheduled) {
+                            timerScheduled = true;
+                            timer.schedule(this::onTimer, waitNanos, TimeUnit.NANOSECONDS);
+                        }
+                        return;
+                    }
+                }
+
+                tasks.poll();
+                ++activeQty;
+                executor.execute(() -> runTask(task));
+            }
+        }
+
+        /**
+         * запуск задания в потоке пула с учётом его в счётчиках выполняемых заданий
+         * задание считается выполняемым до завершения возвращённого им CompletableFuture
+         *
+         * @param task задание
+         */
+        private void runTask(CrawlTask task) {
+            activeTasks.incrementAndGet();
+
+            CompletableFuture<?> future;
+            try {
+                future = task.start();
+            } catch (RuntimeException ex) {
+                future = CompletableFuture.failedFuture(ex);
+            }
+
+            future.whenComplete((result, ex) -> {
+                activeTasks.decrementAndGet();
+                onTaskFinished();
+            });
+        }
+
+        /**
+         * получение токена
+         *
+         * @return 0, если токен получен; иначе - время до появления следующего токена, нс
+         */
+        private long tryAcquire() {
+            if (tokensPerNano <= 0) {
+                return 0;
+            }
+
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+
+            return Math.max((long) Math.ceil((1 - tokens) / tokensPerNano), 1);
+        }
+    }
+
+    /**
+     * задание в очереди хоста
+     */
+    private static final class QueuedTask {
+        private final CrawlTask task;   // задание
+        private final long sequence;    // номер задания в порядке постановки в очередь
+
+        private QueuedTask(CrawlTask task, long sequence) {
+            this.task = task;
+            this.sequence = sequence;
+        }
+    }
+}
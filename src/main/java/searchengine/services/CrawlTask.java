@@ -0,0 +1,47 @@
+package searchengine.services;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * задание обхода: получение и обработка одной страницы сайта
+ * задания одного хоста выполняются в порядке глубины (меньшая - раньше), затем приоритета (больший - раньше),
+ * затем в порядке постановки в очередь
+ */
+interface CrawlTask {
+    // приоритет страницы по умолчанию (как в sitemap.xml)
+    double DEFAULT_PRIORITY = 0.5;
+
+    /**
+     * получение глубины страницы: количества переходов по ссылкам от главной страницы
+     *
+     * @return глубина страницы
+     */
+    default int getDepth() {
+        return 0;
+    }
+
+    /**
+     * получение приоритета страницы среди страниц одной глубины (priority из карты сайта, от 0 до 1)
+     *
+     * @return приоритет страницы
+     */
+    default double getPriority() {
+        return DEFAULT_PRIORITY;
+    }
+
+    /**
+     * проверка, отменено ли задание (например, при остановке индексации)
+     * отменённые задания выполняются планировщиком сразу, без ожидания очереди хоста, чтобы быстрее завершиться
+     *
+     * @return true, если задание отменено
+     */
+    boolean isCancelled();
+
+    /**
+     * запуск задания в потоке пула обхода страниц
+     * задание может завершиться асинхронно (например, после получения ответа сервера), не занимая поток на время ожидания
+     *
+     * @return CompletableFuture, завершающийся по окончании задания
+     */
+    CompletableFuture<?> start();
+}
@@ -0,0 +1,125 @@
+package searchengine.services;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * ответ сервера на запрос страницы: код ответа, тип содержимого, содержимое в исходной кодировке
+ * и заголовки ETag, Last-Modified, используемые при повторной индексации
+ */
+final class FetchedPage {
+    private final int statusCode;       // код http ответа
+    private final String contentType;   // значение заголовка Content-Type; null, если заголовок отсутствует
+    private final byte[] body;          // содержимое страницы
+    private final String charset;       // кодировка из Content-Type; null, если не задана или не поддерживается
+    private final String etag;          // заголовок ETag; null, если отсутствует
+    private final String lastModified;  // заголовок Last-Modified; null, если отсутствует
+
+    FetchedPage(int statusCode, String contentType, byte[] body, String etag, String lastModified) {
+        this.statusCode = statusCode;
+        this.contentType = contentType;
+        this.body = body;
+        this.charset = getCharset(contentType);
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public int getBodyLength() {
+        return body.length;
+    }
+
+    /**
+     * проверка, ответил ли сервер, что страница не изменилась с предыдущего запроса
+     *
+     * @return true, если код ответа 304
+     */
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    /**
+     * проверка, получена ли страница без ошибки HTTP
+     *
+     * @return true, если код ответа 2xx или 3xx, кроме 304
+     */
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 400 && statusCode != 304;
+    }
+
+    /**
+     * проверка, может ли содержимое быть разобрано как HTML (те же типы, что принимает Jsoup)
+     *
+     * @return true, если тип содержимого не задан, либо это text/*, application/xml или application/*+xml
+     */
+    public boolean isHtml() {
+        if (contentType == null) {
+            return true;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+
+        return type.startsWith("text/") || type.startsWith("application/xml")
+                || (type.startsWith("application/") && type.contains("+xml"));
+    }
+
+    /**
+     * разбор содержимого страницы
+     * если кодировка не задана в Content-Type, она определяется Jsoup по BOM и meta, по умолчанию - UTF-8
+     *
+     * @param baseUri ссылка на страницу, используемая для относительных ссылок
+     * @return HTML документ страницы
+     * @throws IOException исключение при ошибке разбора
+     */
+    public Document parse(String baseUri) throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(body), charset, baseUri);
+    }
+
+    /**
+     * получение кодировки из значения Content-Type
+     *
+     * @param contentType значение заголовка Content-Type
+     * @return имя кодировки; null, если кодировка не задана или не поддерживается
+     */
+    private static String getCharset(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int pos = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (pos < 0) {
+            return null;
+        }
+
+        String name = contentType.substring(pos + "charset=".length());
+        int endPos = name.indexOf(';');
+        if (endPos >= 0) {
+            name = name.substring(0, endPos);
+        }
+        name = name.trim().replace("\"", "").replace("'", "");
+
+        try {
+            return Charset.isSupported(name) ? name : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package searchengine.services;
+
+/**
+ * точное множество отпечатков ссылок
+ * множество разделено на сегменты по старшим битам отпечатка; каждый сегмент - хэш-таблица long с открытой адресацией
+ * (линейное пробирование), защищённая собственной блокировкой, поэтому потоки, добавляющие разные ссылки,
+ * как правило, не ожидают друг друга
+ * одна ссылка занимает 8-16 байт (в зависимости от заполненности таблицы) вместо сотен байт строки в дереве
+ */
+final class FingerprintUrlSet implements VisitedUrls {
+    // количество сегментов (степень двойки), старшие биты отпечатка определяют сегмент
+    private static final int SEGMENTS_BITS = 6;
+    private static final int SEGMENTS_QTY = 1 << SEGMENTS_BITS;
+    // начальная вместимость таблицы сегмента (степень двойки)
+    private static final int INITIAL_CAPACITY = 1024;
+    // значение пустой ячейки; отпечаток, равный 0, заменяется на 1
+    private static final long EMPTY = 0;
+    private final Segment[] segments;   // сегменты множества
+
+    FingerprintUrlSet() {
+        this.segments = new Segment[SEGMENTS_QTY];
+        for (int i = 0; i < SEGMENTS_QTY; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public boolean add(String url) {
+        long fingerprint = UtilService.getFingerprint(url);
+        if (fingerprint == EMPTY) {
+            fingerprint = 1;
+        }
+        return segments[(int) (fingerprint >>> (64 - SEGMENTS_BITS))].add(fingerprint);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * сегмент множества: хэш-таблица отпечатков, заполненная не более чем на 3/4
+     */
+    private static final class Segment {
+        private long[] table = new long[INITIAL_CAPACITY];  // ячейки таблицы
+        private int size = 0;                               // количество отпечатков в таблице
+
+        private synchronized boolean add(long fingerprint) {
+            int mask = table.length - 1;
+            int pos = (int) fingerprint & mask;
+
+            while (table[pos] != EMPTY) {
+                if (table[pos] == fingerprint) {
+                    return false;
+                }
+                pos = (pos + 1) & mask;
+            }
+            table[pos] = fingerprint;
+            ++size;
+
+            if (size * 4L > table.length * 3L) {
+                resize();
+            }
+            return true;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        /**
+         * увеличение таблицы в 2 раза и перенос в неё всех отпечатков
+         */
+        private void resize() {
+            long[] newTable = new long[table.length * 2];
+            int mask = newTable.length - 1;
+
+            for (long fingerprint : table) {
+                if (fingerprint != EMPTY) {
+                    int pos = (int) fingerprint & mask;
+                    while (newTable[pos] != EMPTY) {
+                        pos = (pos + 1) & mask;
+                    }
+                    newTable[pos] = fingerprint;
+                }
+            }
+            table = newTable;
+        }
+    }
+}
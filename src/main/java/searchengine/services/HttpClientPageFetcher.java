@@ -0,0 +1,113 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * асинхронное получение страниц с помощью java.net.http.HttpClient
+ * поток не ожидает ответа сервера: запрос отправляется неблокирующим вводом-выводом, а обработка ответа
+ * начинается по его получении; поэтому количество одновременных запросов ограничено не количеством потоков,
+ * а параметром crawlSiteThreads
+ * один клиент используется для всех сайтов: соединения с хостом переиспользуются (HTTP/1.1 keep-alive),
+ * при поддержке сервером используется HTTP/2 с несколькими запросами в одном соединении
+ */
+@Component
+@ConditionalOnProperty(prefix = "indexing-config", name = "fetcher", havingValue = "httpclient")
+class HttpClientPageFetcher implements PageFetcher {
+    private final HttpClient client;            // HTTP клиент
+    private final ExecutorService executor;     // пул потоков клиента, в котором обрабатываются ответы
+    private final Duration timeout;             // максимальное время выполнения запроса
+
+    @Autowired
+    public HttpClientPageFetcher(Config config) {
+        this.timeout = Duration.ofMillis(config.getFetchTimeout());
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "page-fetcher-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(timeout)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * остановка пула потоков клиента при завершении работы приложения
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetch(String url, String userAgent, String referrer,
+                                                String etag, String lastModified) {
+        HttpRequest request;
+        try {
+            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(timeout)
+                    .header("User-Agent", userAgent)
+                    .header("Referer", referrer)
+                    .header("Accept-Encoding", "gzip")
+                    .GET();
+            if (etag != null) {
+                requestBuilder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                requestBuilder.header("If-Modified-Since", lastModified);
+            }
+            request = requestBuilder.build();
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(this::createPage);
+    }
+
+    /**
+     * создание объекта FetchedPage по ответу сервера, распаковка сжатого содержимого
+     *
+     * @param response ответ сервера
+     * @return полученная страница
+     */
+    private FetchedPage createPage(HttpResponse<byte[]> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("");
+        byte[] body = response.body();
+
+        if (contentEncoding.equalsIgnoreCase("gzip") && body.length > 0) {
+            try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = inputStream.readAllBytes();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        return new FetchedPage(response.statusCode(), contentType, body,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+    }
+}
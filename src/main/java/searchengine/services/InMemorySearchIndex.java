@@ -0,0 +1,189 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+import searchengine.repository.SearchIndexNonStandardRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * поисковый индекс в памяти: key = id леммы, value = список вхождений леммы (id страниц и ранги)
+ * загружается из таблицы search_index при запуске приложения и обновляется при индексации страниц
+ * чтение выполняется без блокировок: списки вхождений неизменяемы и заменяются целиком
+ */
+@Component
+class InMemorySearchIndex {
+    private final SearchIndexNonStandardRepository searchIndexNonStandardRepository;
+    private final LoggingService loggingService;
+    private final boolean enabled;          // используется ли поисковый индекс в памяти
+    private final int loadChunkSize;        // количество строк, загружаемых из БД за один запрос
+    private final Map<Integer, PostingList> postings = new ConcurrentHashMap<>();
+    private volatile boolean ready = false; // индекс загружен и может использоваться для поиска
+
+    @Autowired
+    public InMemorySearchIndex(SearchIndexNonStandardRepository searchIndexNonStandardRepository,
+                               LoggingService loggingService, Config config) {
+        this.searchIndexNonStandardRepository = searchIndexNonStandardRepository;
+        this.loggingService = loggingService;
+        this.enabled = config.isInMemoryIndex();
+        this.loadChunkSize = Math.max(config.getIndexBufferSize(), 1);
+    }
+
+    /**
+     * проверка, может ли индекс в памяти использоваться для поиска
+     *
+     * @return true, если индекс включён в конфигурации и загружен
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * загрузка индекса из таблицы search_index
+     * изменения индекса на время загрузки блокируются
+     */
+    public synchronized void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        Map<Integer, LoadBuffer> buffers = new HashMap<>();
+        int lastId = 0;
+        long rowsQty = 0;
+        List<Object[]> rows;
+
+        do {
+            rows = searchIndexNonStandardRepository.findIndexesAfterId(lastId, loadChunkSize);
+
+            for (Object[] row : rows) {
+                lastId = ((Number) row[0]).intValue();
+                int lemmaId = ((Number) row[1]).intValue();
+                int pageId = ((Number) row[2]).intValue();
+                float rank = ((Number) row[3]).floatValue();
+                int siteId = ((Number) row[4]).intValue();
+
+                buffers.computeIfAbsent(lemmaId, key -> new LoadBuffer(siteId)).add(pageId, rank);
+            }
+            rowsQty += rows.size();
+        } while (rows.size() == loadChunkSize);
+
+        postings.clear();
+        for (Map.Entry<Integer, LoadBuffer> entry : buffers.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toPostingList());
+        }
+        ready = true;
+
+        loggingService.logCustom("Поисковый индекс в памяти загружен: " + rowsQty + " записей, " + postings.size() + " лемм, "
+                + (System.currentTimeMillis() - start) + " мс");
+    }
+
+    /**
+     * получение списка вхождений леммы
+     *
+     * @param lemmaId id леммы
+     * @return список вхождений леммы; пустой список, если лемма не встречается ни на одной странице
+     */
+    public PostingList getPostings(int lemmaId) {
+        PostingList postingList = postings.get(lemmaId);
+        return (postingList == null) ? PostingList.EMPTY : postingList;
+    }
+
+    /**
+     * добавление вхождений лемм страницы
+     *
+     * @param siteId              id сайта
+     * @param pageId              id страницы
+     * @param lemmasMap           Map: key = значение леммы (String), value = id леммы в БД (Integer)
+     * @param rankedPageLemmasMap Map: key = значение леммы (String), value = ранг леммы на странице (Integer)
+     */
+    public synchronized void addPage(int siteId, int pageId, Map<String, Integer> lemmasMap,
+                                     Map<String, Integer> rankedPageLemmasMap) {
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<String, Integer> rankEntry : rankedPageLemmasMap.entrySet()) {
+            Integer lemmaId = lemmasMap.get(rankEntry.getKey());
+
+            if (lemmaId == null) {
+                continue;
+            }
+
+            PostingList postingList = postings.get(lemmaId);
+
+            if (postingList == null) {
+                postingList = new PostingList(new int[0], new float[0], 0, siteId);
+            }
+            postings.put(lemmaId, postingList.with(pageId, rankEntry.getValue()));
+        }
+    }
+
+    /**
+     * удаление вхождений лемм страницы
+     *
+     * @param pageId   id страницы
+     * @param lemmaIds id лемм, встречающихся на странице
+     */
+    public synchronized void removePage(int pageId, Collection<Integer> lemmaIds) {
+        if (!enabled) {
+            return;
+        }
+        for (Integer lemmaId : lemmaIds) {
+            PostingList postingList = postings.get(lemmaId);
+
+            if (postingList == null) {
+                continue;
+            }
+
+            PostingList newPostingList = postingList.without(pageId);
+
+            if (newPostingList.size() == 0) {
+                postings.remove(lemmaId);
+            } else {
+                postings.put(lemmaId, newPostingList);
+            }
+        }
+    }
+
+    /**
+     * удаление всех вхождений лемм сайта
+     *
+     * @param siteId id сайта
+     */
+    public synchronized void removeSite(int siteId) {
+        if (!enabled) {
+            return;
+        }
+        postings.values().removeIf(postingList -> postingList.getSiteId() == siteId);
+    }
+
+    /**
+     * буфер, в котором накапливаются вхождения леммы при загрузке индекса
+     */
+    private static final class LoadBuffer {
+        private final int siteId;
+        private int[] pageIds = new int[4];
+        private float[] ranks = new float[4];
+        private int size = 0;
+
+        private LoadBuffer(int siteId) {
+            this.siteId = siteId;
+        }
+
+        private void add(int pageId, float rank) {
+            if (size == pageIds.length) {
+                pageIds = Arrays.copyOf(pageIds, size + (size >> 1));
+                ranks = Arrays.copyOf(ranks, pageIds.length);
+            }
+            pageIds[size] = pageId;
+            ranks[size] = rank;
+            ++size;
+        }
+
+        private PostingList toPostingList() {
+            return PostingList.sorted(pageIds, ranks, size, siteId);
+        }
+    }
+}
@@ -6,12 +6,14 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import searchengine.Application;
+import searchengine.config.Config;
 import searchengine.dto.ResponseWrapper;
 import searchengine.dto.response.Response;
 import searchengine.dto.response.ResponseFail;
 import searchengine.dto.response.ResponseSuccess;
 import searchengine.model.Site;
 
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -30,17 +32,29 @@ class IndexingControlServiceImpl implements IndexingControlService {
 
     private final LoggingService loggingService;
 
-    private List<Future<?>> indexingFutureList;
+    private final ExecutorService executor; // пул потоков, в которых индексируются сайты
+
+    private final boolean incrementalIndexing; // повторная индексация без предварительного удаления данных сайтов
 
-    private ExecutorService executor;
+    private List<Future<?>> indexingFutureList;
 
     private List<MappingIndexingService> siteProcessorList;
 
 
     @Autowired
-    public IndexingControlServiceImpl(SiteService siteService, LoggingService loggingService) {
+    public IndexingControlServiceImpl(SiteService siteService, LoggingService loggingService, Config config) {
         this.siteService = siteService;
         this.loggingService = loggingService;
+        this.executor = Executors.newFixedThreadPool(Math.max(config.getIndexingThreads(), 1));
+        this.incrementalIndexing = config.isIncrementalIndexing();
+    }
+
+    /**
+     * остановка пула потоков индексации сайтов при завершении работы приложения
+     */
+    @PreDestroy
+    public void shutdownExecutor() {
+        executor.shutdownNow();
     }
 
     /**
@@ -91,13 +105,13 @@ class IndexingControlServiceImpl implements IndexingControlService {
 
     /**
      * Запуск процесса индексации выбранного сайта / всех сайтов из конфигурационного файла
+     * одновременно индексируется не более indexingThreads сайтов, остальные ожидают в очереди пула
      *
      * @param siteUrl ссылка на сайт. Если null, то индексируются все сайты
      */
     private void startIndexingSitesProcess(String siteUrl) {
         indexingFutureList = new ArrayList<>();
         siteProcessorList = new ArrayList<>();
-        executor = Executors.newCachedThreadPool();
 
         Iterable<Site> sites = getSitesForIndexing(siteUrl);
 
@@ -107,7 +121,9 @@ class IndexingControlServiceImpl implements IndexingControlService {
             MappingIndexingService mappingIndexingService =
                     context.getBean(MappingIndexingService.class);
 
-            mappingIndexingService.removeSiteData(curSite);
+            if (!incrementalIndexing && !mappingIndexingService.canResume(curSite)) {
+                mappingIndexingService.removeSiteData(curSite);
+            }
 
             siteProcessorList.add(mappingIndexingService);
 
@@ -117,8 +133,6 @@ class IndexingControlServiceImpl implements IndexingControlService {
 
             indexingFutureList.add(indexingFuture);
         }
-
-        executor.shutdown();
     }
 
 
@@ -244,14 +258,12 @@ class IndexingControlServiceImpl implements IndexingControlService {
         ApplicationContext context = Application.getContext();
 
         indexingFutureList = new ArrayList<>();
-        executor = Executors.newCachedThreadPool();
         MappingIndexingService mappingIndexingService =
                 context.getBean(MappingIndexingService.class);
 
         Callable<Integer> indexingCallable = () -> mappingIndexingService.indexSinglePage(pageUrl);
         Future<Integer> indexingFuture = executor.submit(indexingCallable);
         indexingFutureList.add(indexingFuture);
-        executor.shutdown();
 
         return indexingFuture;
     }
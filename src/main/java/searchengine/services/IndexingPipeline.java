@@ -0,0 +1,285 @@
+package searchengine.services;
+
+import lombok.extern.log4j.Log4j2;
+import searchengine.model.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * конвейер индексации страниц сайта: получение и разбор → лемматизация → сохранение в БД
+ * страницы запрашиваются и разбираются (ссылки, заголовок, текст, SimHash) в потоках обхода (CrawlScheduler)
+ * и передаются в ограниченную очередь лемматизации; потоки лемматизации передают леммы страниц в ограниченную очередь
+ * сохранения, из которой потоки записи сохраняют страницы, леммы и индексы в БД порциями по batchSize страниц
+ * если очередь следующего этапа заполнена, поток ожидает освобождения места: обход замедляется до скорости
+ * лемматизации и записи в БД, а запросы страниц, лемматизация и запись в БД выполняются одновременно
+ * для каждого этапа ведутся счётчики (PipelineMetrics)
+ * при прерывании индексации страницы, оставшиеся в очередях, не сохраняются
+ * ошибка сохранения порции запоминается (getFailure): индексация сайта не должна считаться успешной
+ */
+@Log4j2
+final class IndexingPipeline {
+    private static final long POLL_TIMEOUT_MS = 100; // период проверки прерывания и завершения этапа, мс
+
+    private final int siteId;                                          // id сайта
+    private final Function<Page, LemmatizedPage> lemmatizer;           // лемматизация страницы
+    private final Consumer<List<LemmatizedPage>> writer;               // сохранение порции страниц в БД
+    private final int batchSize;                                       // размер порции страниц для сохранения
+    private final int lemmatizerThreadsQty;                            // количество потоков лемматизации
+    private final int writerThreadsQty;                                // количество потоков записи в БД
+    private final BlockingQueue<Page> parsedPages;                     // очередь лемматизации
+    private final BlockingQueue<LemmatizedPage> lemmatizedPages;       // очередь сохранения
+    private final ExecutorService lemmatizerPool;                      // потоки лемматизации
+    private final ExecutorService writerPool;                          // потоки записи в БД
+    private final PipelineMetrics parseMetrics = new PipelineMetrics("parse");
+    private final PipelineMetrics lemmatizeMetrics = new PipelineMetrics("lemmatize");
+    private final PipelineMetrics persistMetrics = new PipelineMetrics("persist");
+    private final AtomicReference<String> failure = new AtomicReference<>(); // первая ошибка сохранения порции; null - ошибок нет
+    private volatile boolean parsingFinished = false;     // все страницы переданы в очередь лемматизации
+    private volatile boolean lemmatizingFinished = false; // все страницы переданы в очередь сохранения
+    private volatile boolean terminated = false;          // индексация прервана
+
+    /**
+     * конструктор класса; потоки этапов запускаются сразу
+     *
+     * @param siteId               id сайта
+     * @param lemmatizer           лемматизация страницы
+     * @param writer               сохранение порции страниц в БД
+     * @param batchSize            размер порции страниц для сохранения
+     * @param queueSize            размер очередей лемматизации и сохранения
+     * @param lemmatizerThreadsQty количество потоков лемматизации
+     * @param writerThreadsQty     количество потоков записи в БД
+     */
+    IndexingPipeline(int siteId, Function<Page, LemmatizedPage> lemmatizer, Consumer<List<LemmatizedPage>> writer,
+                     int batchSize, int queueSize, int lemmatizerThreadsQty, int writerThreadsQty) {
+        this.siteId = siteId;
+        this.lemmatizer = lemmatizer;
+        this.writer = writer;
+        this.batchSize = Math.max(batchSize, 1);
+        this.lemmatizerThreadsQty = Math.max(lemmatizerThreadsQty, 1);
+        this.writerThreadsQty = Math.max(writerThreadsQty, 1);
+        this.parsedPages = new ArrayBlockingQueue<>(Math.max(queueSize, 1));
+        this.lemmatizedPages = new ArrayBlockingQueue<>(Math.max(queueSize, this.batchSize));
+        this.lemmatizerPool = createPool("lemmatizer", this.lemmatizerThreadsQty);
+        this.writerPool = createPool("writer", this.writerThreadsQty);
+
+        for (int i = 0; i < this.lemmatizerThreadsQty; i++) {
+            lemmatizerPool.execute(this::runLemmatizer);
+        }
+        for (int i = 0; i < this.writerThreadsQty; i++) {
+            writerPool.execute(this::runWriter);
+        }
+    }
+
+    /**
+     * передача разобранной страницы в очередь лемматизации
+     * если очередь заполнена, поток ожидает освобождения места
+     *
+     * @param page страница
+     * @return true - страница передана; false - индексация прервана
+     */
+    public boolean submit(Page page) {
+        try {
+            return put(parsedPages, page, parseMetrics);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * учёт разбора страницы в потоке обхода
+     *
+     * @param startNanos время начала разбора (System.nanoTime)
+     */
+    public void recordParsed(long startNanos) {
+        parseMetrics.record(startNanos, 1);
+    }
+
+    /**
+     * ожидание обработки всех переданных страниц: сначала завершается лемматизация, затем сохранение в БД
+     * вызывается после завершения обхода сайта, когда новые страницы больше не передаются
+     *
+     * @throws InterruptedException исключение, если поток был прерван во время ожидания
+     */
+    public void finish() throws InterruptedException {
+        parsingFinished = true;
+        lemmatizerPool.shutdown();
+        lemmatizerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        lemmatizingFinished = true;
+        writerPool.shutdown();
+        writerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * прерывание работы конвейера: потоки этапов завершаются, не обрабатывая оставшиеся в очередях страницы;
+     * порция, сохранение которой уже начато, сохраняется полностью
+     */
+    public void terminate() {
+        terminated = true;
+        lemmatizerPool.shutdown();
+        writerPool.shutdown();
+    }
+
+    /**
+     * ожидание завершения потоков этапов после прерывания
+     *
+     * @throws InterruptedException исключение, если поток был прерван во время ожидания
+     */
+    public void awaitTermination() throws InterruptedException {
+        lemmatizerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        writerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * получение описания первой ошибки сохранения порции страниц
+     *
+     * @return описание ошибки; null, если все порции сохранены
+     */
+    public String getFailure() {
+        return failure.get();
+    }
+
+    /**
+     * получение счётчиков этапов конвейера
+     *
+     * @return описание счётчиков этапов
+     */
+    public String getStats() {
+        return "Site #" + siteId + " pipeline: " + parseMetrics + "; " + lemmatizerThreadsQty + " threads "
+                + lemmatizeMetrics + "; " + writerThreadsQty + " threads " + persistMetrics
+                + "; queued " + parsedPages.size() + " / " + lemmatizedPages.size();
+    }
+
+    /**
+     * цикл потока лемматизации: страницы берутся из очереди лемматизации до её опустошения после завершения обхода
+     * страница, лемматизация которой завершилась ошибкой, сохраняется без индексации
+     */
+    private void runLemmatizer() {
+        try {
+            while (!terminated) {
+                boolean finished = parsingFinished;
+                Page page = parsedPages.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+                if (page == null) {
+                    if (finished) {
+                        return;
+                    }
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                LemmatizedPage lemmatizedPage;
+                try {
+                    lemmatizedPage = lemmatizer.apply(page);
+                } catch (RuntimeException ex) {
+                    log.error("Lemmatization failed, page " + page.getPageUrl(), ex);
+                    lemmatizedPage = new LemmatizedPage(page, null);
+                }
+                lemmatizeMetrics.record(start, 1);
+
+                put(lemmatizedPages, lemmatizedPage, lemmatizeMetrics);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * цикл потока записи в БД: страницы собираются в порции по batchSize страниц;
+     * неполная порция сохраняется после завершения лемматизации
+     */
+    private void runWriter() {
+        List<LemmatizedPage> batch = new ArrayList<>(batchSize);
+
+        try {
+            while (!terminated) {
+                boolean finished = lemmatizingFinished;
+                LemmatizedPage page = lemmatizedPages.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+                if (page != null) {
+                    batch.add(page);
+                    lemmatizedPages.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize) {
+                        writeBatch(batch);
+                    }
+                } else if (finished) {
+                    if (!batch.isEmpty()) {
+                        writeBatch(batch);
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * сохранение порции страниц в БД
+     * при ошибке запоминается её описание, сохранение следующих порций продолжается
+     *
+     * @param batch порция страниц; очищается после сохранения
+     */
+    private void writeBatch(List<LemmatizedPage> batch) {
+        long start = System.nanoTime();
+        try {
+            writer.accept(batch);
+        } catch (RuntimeException ex) {
+            log.error("Site #" + siteId + ": failed to save " + batch.size() + " pages", ex);
+            failure.compareAndSet(null, "Не удалось сохранить " + batch.size() + " страниц: " + ex.getMessage());
+        }
+        persistMetrics.record(start, batch.size());
+        batch.clear();
+    }
+
+    /**
+     * передача элемента в очередь следующего этапа с ожиданием свободного места
+     * время ожидания учитывается в счётчиках передающего этапа
+     *
+     * @param queue   очередь
+     * @param item    элемент
+     * @param metrics счётчики передающего этапа
+     * @return true - элемент передан; false - индексация прервана
+     * @throws InterruptedException исключение, если поток был прерван во время ожидания
+     */
+    private <T> boolean put(BlockingQueue<T> queue, T item, PipelineMetrics metrics) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            while (!terminated) {
+                if (queue.offer(item, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            metrics.addWait(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * создание пула потоков этапа
+     *
+     * @param stageName  название этапа, используется в именах потоков
+     * @param threadsQty количество потоков
+     * @return пул потоков
+     */
+    private ExecutorService createPool(String stageName, int threadsQty) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threadsQty, runnable -> {
+            Thread thread = new Thread(runnable, "site-" + siteId + "-" + stageName + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -23,14 +23,17 @@ public class InitService {
 
     private final LoggingService loggingService;
 
+    private final InMemorySearchIndex inMemorySearchIndex;
+
 
     @Autowired
     public InitService(SiteService siteService, SitesList sites, MappingIndexingService mappingIndexingService,
-                       LoggingService loggingService) {
+                       LoggingService loggingService, InMemorySearchIndex inMemorySearchIndex) {
         this.siteService = siteService;
         this.sites = sites;
         this.mappingIndexingService = mappingIndexingService;
         this.loggingService = loggingService;
+        this.inMemorySearchIndex = inMemorySearchIndex;
     }
 
 
@@ -62,6 +65,14 @@ public class InitService {
         loggingService.logCustom("Приложение запущено");
     }
 
+    /**
+     * загрузка поискового индекса в память (если это задано в конфигурационном файле)
+     * до окончания загрузки поиск выполняется по БД
+     */
+    public void loadInMemorySearchIndex() {
+        inMemorySearchIndex.load();
+    }
+
     /**
      * сохранение в БД добавленных сайтов (присутствующих в конфигурационном файле и отсутствующих в БД)
      *
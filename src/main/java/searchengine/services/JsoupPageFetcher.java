@@ -0,0 +1,50 @@
+package searchengine.services;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * получение страниц с помощью Jsoup
+ * запрос выполняется синхронно в вызывающем потоке: поток занят на всё время запроса
+ */
+@Component
+@ConditionalOnProperty(prefix = "indexing-config", name = "fetcher", havingValue = "jsoup", matchIfMissing = true)
+class JsoupPageFetcher implements PageFetcher {
+    private final int timeout;  // максимальное время выполнения запроса, мс
+
+    @Autowired
+    public JsoupPageFetcher(Config config) {
+        this.timeout = config.getFetchTimeout();
+    }
+
+    @Override
+    public CompletableFuture<FetchedPage> fetch(String url, String userAgent, String referrer,
+                                                String etag, String lastModified) {
+        try {
+            Connection connection = Jsoup.connect(url).userAgent(userAgent).referrer(referrer)
+                    .timeout(timeout).maxBodySize(0).ignoreHttpErrors(true).ignoreContentType(true);
+            if (etag != null) {
+                connection.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                connection.header("If-Modified-Since", lastModified);
+            }
+
+            Connection.Response response = connection.execute();
+
+            FetchedPage page = new FetchedPage(response.statusCode(), response.contentType(), response.bodyAsBytes(),
+                    response.header("ETag"), response.header("Last-Modified"));
+
+            return CompletableFuture.completedFuture(page);
+        } catch (IOException | RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+}
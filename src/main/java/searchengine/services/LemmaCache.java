@@ -0,0 +1,180 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * кэш результатов лемматизации: key = слово в нижнем регистре, value = нормальные формы слова и леммы, используемые при индексации
+ * (после исключения служебных частей речи)
+ * размер кэша ограничивается оценкой занимаемой памяти; кэш разделён на сегменты, в каждом из которых
+ * при превышении размера вытесняются давно не использованные слова
+ */
+@Component
+class LemmaCache {
+    // количество сегментов кэша
+    private static final int SEGMENTS_QTY = 16;
+    // оценка размера служебных объектов одной записи кэша, байт
+    private static final int ENTRY_OVERHEAD = 128;
+    private final Segment[] segments;                   // сегменты кэша
+    private final LongAdder hits = new LongAdder();     // количество обращений, результат которых найден в кэше
+    private final LongAdder misses = new LongAdder();   // количество обращений, потребовавших лемматизации
+
+    @Autowired
+    public LemmaCache(Config config) {
+        long segmentMaxBytes = Math.max(config.getLemmaCacheSizeMb(), 0) * 1024L * 1024L / SEGMENTS_QTY;
+
+        this.segments = new Segment[SEGMENTS_QTY];
+        for (int i = 0; i < SEGMENTS_QTY; i++) {
+            segments[i] = new Segment(segmentMaxBytes);
+        }
+    }
+
+    /**
+     * получение результата лемматизации слова
+     * если слово отсутствует в кэше, лемматизация выполняется вне блокировки сегмента
+     *
+     * @param word   слово в нижнем регистре
+     * @param loader функция лемматизации слова
+     * @return результат лемматизации слова
+     */
+    public WordLemmas get(String word, Function<String, WordLemmas> loader) {
+        Segment segment = segments[(word.hashCode() & Integer.MAX_VALUE) % SEGMENTS_QTY];
+
+        WordLemmas wordLemmas = segment.get(word);
+
+        if (wordLemmas != null) {
+            hits.increment();
+            return wordLemmas;
+        }
+
+        misses.increment();
+        wordLemmas = loader.apply(word);
+        segment.put(word, wordLemmas);
+
+        return wordLemmas;
+    }
+
+    public long getHitsQty() {
+        return hits.sum();
+    }
+
+    public long getMissesQty() {
+        return misses.sum();
+    }
+
+    /**
+     * получение количества слов в кэше
+     *
+     * @return количество слов
+     */
+    public long getSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * получение оценки памяти, занимаемой кэшем
+     *
+     * @return размер кэша, байт
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * результат лемматизации слова
+     */
+    static final class WordLemmas {
+        private final List<String> normalForms;     // нормальные формы слова
+        private final List<String> indexLemmas;     // леммы, сохраняемые в индексе (без служебных частей речи)
+
+        WordLemmas(List<String> normalForms, List<String> indexLemmas) {
+            this.normalForms = List.copyOf(normalForms);
+            this.indexLemmas = List.copyOf(indexLemmas);
+        }
+
+        public List<String> getNormalForms() {
+            return normalForms;
+        }
+
+        public List<String> getIndexLemmas() {
+            return indexLemmas;
+        }
+
+        /**
+         * оценка памяти, занимаемой результатом лемматизации и словом
+         *
+         * @param word слово
+         * @return размер, байт
+         */
+        private long weight(String word) {
+            long weight = ENTRY_OVERHEAD + 2L * word.length();
+            for (String normalForm : normalForms) {
+                weight += 48 + 2L * normalForm.length();
+            }
+            for (String indexLemma : indexLemmas) {
+                weight += 48 + 2L * indexLemma.length();
+            }
+            return weight;
+        }
+    }
+
+    /**
+     * сегмент кэша: слова в порядке обращения к ним
+     */
+    private static final class Segment {
+        private final long maxBytes;                        // максимальный размер сегмента, байт
+        private final LinkedHashMap<String, WordLemmas> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long bytes = 0;                             // текущий размер сегмента, байт
+
+        private Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private synchronized WordLemmas get(String word) {
+            return entries.get(word);
+        }
+
+        private synchronized void put(String word, WordLemmas wordLemmas) {
+            long weight = wordLemmas.weight(word);
+
+            if (weight > maxBytes) {
+                return;
+            }
+
+            WordLemmas previous = entries.put(word, wordLemmas);
+            if (previous != null) {
+                bytes -= previous.weight(word);
+            }
+            bytes += weight;
+
+            while (bytes > maxBytes) {
+                Map.Entry<String, WordLemmas> eldest = entries.entrySet().iterator().next();
+                bytes -= eldest.getValue().weight(eldest.getKey());
+                entries.remove(eldest.getKey());
+            }
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized long bytes() {
+            return bytes;
+        }
+    }
+}
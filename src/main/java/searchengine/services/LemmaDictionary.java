@@ -0,0 +1,62 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * словари лемм сайтов в памяти: для каждого сайта key = значение леммы, value = id леммы в таблице lemma
+ * словарь сайта загружается из таблицы lemma при первом сохранении лемм сайта и дополняется новыми леммами,
+ * поэтому id уже известных лемм не запрашиваются из БД
+ * изменения словаря сайта и таблицы lemma для этого сайта выполняются под блокировкой словаря сайта (getSiteLemmas)
+ */
+@Component
+class LemmaDictionary {
+    private final Map<Integer, Map<String, Integer>> sites = new ConcurrentHashMap<>(); // key = id сайта, value = словарь лемм сайта
+
+    /**
+     * получение словаря лемм сайта; при отсутствии словарь загружается из БД
+     *
+     * @param siteId id сайта
+     * @param loader загрузка лемм сайта из БД: массивы значение леммы, id леммы
+     * @return словарь лемм сайта, используется также как объект блокировки
+     */
+    public Map<String, Integer> getSiteLemmas(int siteId, Supplier<List<Object[]>> loader) {
+        return sites.computeIfAbsent(siteId, key -> {
+            Map<String, Integer> siteLemmas = new ConcurrentHashMap<>();
+
+            for (Object[] row : loader.get()) {
+                siteLemmas.put((String) row[0], (Integer) row[1]);
+            }
+
+            System.out.println("Site #" + siteId + ": lemma dictionary loaded, " + siteLemmas.size() + " lemmas");
+            return siteLemmas;
+        });
+    }
+
+    /**
+     * удаление леммы из словаря сайта, если словарь загружен
+     *
+     * @param siteId id сайта
+     * @param lemma  значение леммы
+     */
+    public void remove(int siteId, String lemma) {
+        Map<String, Integer> siteLemmas = sites.get(siteId);
+
+        if (siteLemmas != null) {
+            siteLemmas.remove(lemma);
+        }
+    }
+
+    /**
+     * удаление словаря сайта; при следующем сохранении лемм сайта словарь загружается из БД заново
+     *
+     * @param siteId id сайта
+     */
+    public void removeSite(int siteId) {
+        sites.remove(siteId);
+    }
+}
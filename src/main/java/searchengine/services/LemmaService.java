@@ -11,13 +11,23 @@ import java.util.Map;
  */
 public interface LemmaService {
     /**
-     * получение сочетания значение леммы - id леммы
+     * сохранение лемм с увеличением частоты на количество страниц, на которых они встречаются,
+     * и получение сочетания значение леммы - id леммы
      *
-     * @param lemmaStrings коллекция, содержащая значения лемм (String)
-     * @param siteId       id сайта
+     * @param lemmaPagesQty Map: key = значение леммы (String), value = количество новых страниц с леммой (Integer)
+     * @param siteId        id сайта
      * @return Map: key = значение леммы (String), value = id леммы в БД (Integer)
      */
-    Map<String, Integer> getLemmasByStrings(Collection<String> lemmaStrings, int siteId);
+    Map<String, Integer> saveLemmaFrequencies(Map<String, Integer> lemmaPagesQty, int siteId);
+
+    /**
+     * уменьшение частоты лемм удаляемой страницы на 1; леммы, которые больше не встречаются на страницах сайта,
+     * удаляются
+     *
+     * @param lemmaIds id лемм, встречающихся на странице
+     * @param siteId   id сайта
+     */
+    void decreaseFrequencies(Collection<Integer> lemmaIds, int siteId);
 
     /**
      * поиск объектов лемм в БД по значениям (String) и id сайта (int)
@@ -7,12 +7,15 @@ import searchengine.repository.LemmaNonStandardRepository;
 import searchengine.repository.LemmaRepository;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * класс, реализующий запуск операций с леммами в БД
  * для запуска операций используются интерфейсы LemmaRepository и LemmaNonStandardRepository
+ * id лемм при сохранении берутся из словаря лемм сайта в памяти (LemmaDictionary)
  */
 @Service
 class LemmaServiceImpl implements LemmaService {
@@ -20,15 +23,84 @@ class LemmaServiceImpl implements LemmaService {
 
     private final LemmaRepository lemmaRepository;
 
+    private final LemmaDictionary lemmaDictionary;
+
     @Autowired
-    public LemmaServiceImpl(LemmaNonStandardRepository lemmaNonStandardRepository, LemmaRepository lemmaRepository) {
+    public LemmaServiceImpl(LemmaNonStandardRepository lemmaNonStandardRepository, LemmaRepository lemmaRepository,
+                            LemmaDictionary lemmaDictionary) {
         this.lemmaNonStandardRepository = lemmaNonStandardRepository;
         this.lemmaRepository = lemmaRepository;
+        this.lemmaDictionary = lemmaDictionary;
     }
 
+    /**
+     * сохранение лемм с увеличением частоты на количество страниц, на которых они встречаются,
+     * и получение сочетания значение леммы - id леммы
+     * для лемм из словаря сайта увеличивается частота по id, в БД добавляются только новые леммы;
+     * сохранение лемм одного сайта выполняется под блокировкой словаря сайта, поэтому новая лемма добавляется один раз
+     *
+     * @param lemmaPagesQty Map: key = значение леммы (String), value = количество новых страниц с леммой (Integer)
+     * @param siteId        id сайта
+     * @return Map: key = значение леммы (String), value = id леммы в БД (Integer)
+     */
     @Override
-    public Map<String, Integer> getLemmasByStrings(Collection<String> lemmaStrings, int siteId) {
-        return lemmaNonStandardRepository.getLemmasByStrings(lemmaStrings, siteId);
+    public Map<String, Integer> saveLemmaFrequencies(Map<String, Integer> lemmaPagesQty, int siteId) {
+        Map<String, Integer> siteLemmas = lemmaDictionary.getSiteLemmas(siteId,
+                () -> lemmaNonStandardRepository.findLemmaIdsBySiteId(siteId));
+
+        synchronized (siteLemmas) {
+            Map<String, Integer> lemmasMap = new HashMap<>();
+            Map<Integer, Integer> knownLemmasQty = new HashMap<>();
+            Map<String, Integer> newLemmasQty = new LinkedHashMap<>();
+
+            for (Map.Entry<String, Integer> lemmaEntry : lemmaPagesQty.entrySet()) {
+                Integer lemmaId = siteLemmas.get(lemmaEntry.getKey());
+
+                if (lemmaId != null) {
+                    lemmasMap.put(lemmaEntry.getKey(), lemmaId);
+                    knownLemmasQty.put(lemmaId, lemmaEntry.getValue());
+                } else {
+                    newLemmasQty.put(lemmaEntry.getKey(), lemmaEntry.getValue());
+                }
+            }
+
+            if (!knownLemmasQty.isEmpty()) {
+                lemmaNonStandardRepository.increaseFrequencies(knownLemmasQty);
+            }
+
+            Map<String, Integer> insertedLemmas = lemmaNonStandardRepository.insertLemmas(newLemmasQty, siteId);
+            siteLemmas.putAll(insertedLemmas);
+            lemmasMap.putAll(insertedLemmas);
+
+            return lemmasMap;
+        }
+    }
+
+    /**
+     * уменьшение частоты лемм удаляемой страницы на 1; леммы, которые больше не встречаются на страницах сайта,
+     * удаляются из БД и из словаря лемм сайта
+     * выполняется под блокировкой словаря сайта, как и сохранение лемм: частота изменяется в БД относительно
+     * текущего значения, а лемма не удаляется после того, как её id получен из словаря при сохранении другой страницы
+     *
+     * @param lemmaIds id лемм, встречающихся на странице
+     * @param siteId   id сайта
+     */
+    @Override
+    public void decreaseFrequencies(Collection<Integer> lemmaIds, int siteId) {
+        if (lemmaIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> siteLemmas = lemmaDictionary.getSiteLemmas(siteId,
+                () -> lemmaNonStandardRepository.findLemmaIdsBySiteId(siteId));
+
+        synchronized (siteLemmas) {
+            List<String> removedLemmas = lemmaNonStandardRepository.decreaseFrequencies(lemmaIds);
+
+            for (String lemma : removedLemmas) {
+                siteLemmas.remove(lemma);
+            }
+        }
     }
 
     @Override
@@ -55,6 +127,7 @@ class LemmaServiceImpl implements LemmaService {
     @Override
     public void delete(Lemma lemma) {
         lemmaRepository.delete(lemma);
+        lemmaDictionary.remove(lemma.getSiteId(), lemma.getLemma());
     }
 
     @Override
@@ -65,5 +138,6 @@ class LemmaServiceImpl implements LemmaService {
     @Override
     public void deleteBySiteId(int siteId) {
         lemmaNonStandardRepository.deleteBySiteId(siteId);
+        lemmaDictionary.removeSite(siteId);
     }
 }
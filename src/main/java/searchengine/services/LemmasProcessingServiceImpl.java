@@ -4,6 +4,7 @@ import lombok.extern.log4j.Log4j2;
 import org.apache.lucene.morphology.LuceneMorphology;
 import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -18,10 +19,6 @@ import java.util.*;
 @Service
 @Log4j2
 class LemmasProcessingServiceImpl implements LemmasProcessingService {
-    // разбиение текста на слова
-    private static final String WORDS_SPLIT_REGEX = "([^а-яА-Яa-zA-Z0-9]+)";
-    // символы, обрабатываемые на страницах и в запросах
-    private static final String ALLOWED_SYMBOLS_REGEX = "[а-яА-Яa-zA-Z0-9]+";
     // разделитель свойств в классах лемматизаторов
     private static final String PROPERTIES_SPLITTER = "|";
     // части речи английского и русского языков, которые необходимо исключать из списка лемм
@@ -38,13 +35,18 @@ class LemmasProcessingServiceImpl implements LemmasProcessingService {
     private final String enPron = PartOfSpeech.PRONOUN.getEnDesc();
     private LuceneMorphology russianLuceneMorphology;
     private LuceneMorphology englishLuceneMorphology;
+    private final LemmaCache lemmaCache; // кэш результатов лемматизации слов
 
 
     /**
      * Конструктор класса
      * При создании экземпляра класса создаются экземпляры классов RussianLuceneMorphology и EnglishLuceneMorphology
+     *
+     * @param lemmaCache кэш результатов лемматизации слов
      */
-    public LemmasProcessingServiceImpl() {
+    @Autowired
+    public LemmasProcessingServiceImpl(LemmaCache lemmaCache) {
+        this.lemmaCache = lemmaCache;
         try {
             russianLuceneMorphology = new RussianLuceneMorphology();
             englishLuceneMorphology = new EnglishLuceneMorphology();
@@ -55,6 +57,7 @@ class LemmasProcessingServiceImpl implements LemmasProcessingService {
 
     /**
      * Метод выполняет разделение текста на слова, получение лемм их свойств для каждого слова
+     * Слова выделяются и приводятся к нижнему регистру классом Tokenizer
      *
      * @param text текст
      * @return Map, содержащий леммы и количества их повторений в тексте
@@ -63,11 +66,11 @@ class LemmasProcessingServiceImpl implements LemmasProcessingService {
     public Map<String, Integer> getTextLemmasWithFreq(String text) {
         Map<String, Integer> lemmasMap = new HashMap<>();
 
-        String[] words = text.split(WORDS_SPLIT_REGEX);
+        Tokenizer tokenizer = new Tokenizer(text);
 
-        for (String inputWord : words) {
+        while (tokenizer.next()) {
             try {
-                checkAndPutWord(inputWord.toLowerCase(), lemmasMap);
+                checkAndPutWord(tokenizer.toString(), lemmasMap);
             } catch (Exception ex) {
                 continue;
             }
@@ -93,44 +96,67 @@ class LemmasProcessingServiceImpl implements LemmasProcessingService {
     /**
      * Метод возвращает список нормальных форм слова на английском или русском языках.
      * Если нормальные формы слова не найдены, то возвращается пустой список
+     * Результат берётся из кэша лемматизации; возвращаемый список не может быть изменён
      *
      * @param word - слово
      * @return список нормальных форм слова
      */
     @Override
     public List<String> getWordLemmas(String word) {
-        List<String> wordForms = new ArrayList<>();
-
-        try {
-            wordForms = russianLuceneMorphology.getNormalForms(word.toLowerCase());
-        } catch (Exception ruEx) {
-            try {
-                wordForms = englishLuceneMorphology.getNormalForms(word.toLowerCase());
-            } catch (Exception enEx) {
-                return wordForms;
-            }
-        }
-        return wordForms;
+        return lemmaCache.get(word.toLowerCase(), this::analyzeWord).getNormalForms();
     }
 
 
     /**
-     * Метод получает леммы слова и информацию о них и за добавляет леммы в lemmasMap
+     * Метод получает леммы слова из кэша лемматизации и добавляет их в lemmasMap
      *
-     * @param word      слово
+     * @param word      слово в нижнем регистре
      * @param lemmasMap Map, содержащий леммы и количества их повторений в тексте
      */
     private void checkAndPutWord(String word, Map<String, Integer> lemmasMap) {
-        List<String> wordLemmas = getWordLemmas(word);
+        for (String lemma : lemmaCache.get(word, this::analyzeWord).getIndexLemmas()) {
+            putWord(lemma, lemmasMap);
+        }
+    }
+
+
+    /**
+     * Метод выполняет лемматизацию слова: получает нормальные формы слова и леммы, сохраняемые в индексе -
+     * нормальные формы без служебных частей речи и местоимений
+     * Если нормальные формы не найдены, то в индексе сохраняется само слово, если оно состоит из допустимых символов
+     *
+     * @param word слово в нижнем регистре
+     * @return результат лемматизации слова
+     */
+    private LemmaCache.WordLemmas analyzeWord(String word) {
+        List<String> wordLemmas = new ArrayList<>();
+
+        try {
+            wordLemmas = russianLuceneMorphology.getNormalForms(word);
+        } catch (Exception ruEx) {
+            try {
+                wordLemmas = englishLuceneMorphology.getNormalForms(word);
+            } catch (Exception enEx) {
+                wordLemmas = new ArrayList<>();
+            }
+        }
+
+        List<String> indexLemmas = new ArrayList<>();
 
         if (wordLemmas.size() == 0) {
-            if (word.matches(ALLOWED_SYMBOLS_REGEX)) {
-                putWord(word, lemmasMap);
+            if (Tokenizer.isWord(word)) {
+                indexLemmas.add(word);
             }
-            return;
+            return new LemmaCache.WordLemmas(wordLemmas, indexLemmas);
         }
 
-        List<String> properties = getProperties(word);
+        List<String> properties;
+
+        try {
+            properties = getProperties(word);
+        } catch (Exception ex) {
+            return new LemmaCache.WordLemmas(wordLemmas, indexLemmas);
+        }
 
         for (int i = 0; i < properties.size(); i++) {
             String property = properties.get(i);
@@ -149,8 +175,10 @@ class LemmasProcessingServiceImpl implements LemmasProcessingService {
                 continue;
             }
 
-            putWord(wordLemmas.get(i), lemmasMap);
+            indexLemmas.add(wordLemmas.get(i));
         }
+
+        return new LemmaCache.WordLemmas(wordLemmas, indexLemmas);
     }
 
 
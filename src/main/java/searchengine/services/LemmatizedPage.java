@@ -0,0 +1,42 @@
+package searchengine.services;
+
+import searchengine.model.Page;
+
+import java.util.Map;
+
+/**
+ * страница, подготовленная к сохранению в БД: заголовок и текст страницы извлечены, леммы и их ранги вычислены
+ * передаётся из этапа лемматизации конвейера индексации в этап сохранения
+ */
+final class LemmatizedPage {
+    private final Page page;                                // страница
+    private final Map<String, Integer> rankedPageLemmasMap; // key = лемма, value = ранг леммы на странице; null - страница не индексируется
+
+    /**
+     * конструктор класса
+     *
+     * @param page                страница
+     * @param rankedPageLemmasMap леммы страницы и их ранги; null, если страница не индексируется
+     */
+    LemmatizedPage(Page page, Map<String, Integer> rankedPageLemmasMap) {
+        this.page = page;
+        this.rankedPageLemmasMap = rankedPageLemmasMap;
+    }
+
+    Page getPage() {
+        return page;
+    }
+
+    Map<String, Integer> getRankedPageLemmasMap() {
+        return rankedPageLemmasMap;
+    }
+
+    /**
+     * проверка, должна ли страница индексироваться
+     *
+     * @return true, если для страницы вычислены леммы
+     */
+    boolean isIndexable() {
+        return rankedPageLemmasMap != null;
+    }
+}
@@ -1,103 +1,186 @@
 package searchengine.services;
 
 import lombok.extern.log4j.Log4j2;
-import org.jsoup.Connection;
-import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import searchengine.model.Page;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Instant;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 /**
- * класс, использующийся для запуска ForkJoinTask
+ * задание обхода одной страницы сайта
+ * страница запрашивается через PageFetcher; полученный ответ обрабатывается в пуле потоков обхода страниц
+ * при повторной индексации страница, сохранённая ранее, запрашивается условно (ETag, Last-Modified);
+ * если сервер ответил 304 или контент не изменился, страница не сохраняется и не индексируется повторно,
+ * а ссылки на другие страницы берутся из сохранённого контента
+ * для страницы из карты сайта, дата изменения (lastmod) которой не позже сохранённого заголовка Last-Modified,
+ * запрос не выполняется: страница обрабатывается как неизменившаяся
+ * найденные на странице новые ссылки, обход которых разрешён robots.txt, передаются в планировщик обхода как новые задания;
+ * задания для ссылок создаются в пределах ограничений обхода сайта (глубина, количество страниц);
+ * при исчерпании ограничений объёма данных или времени обхода задание завершается без запроса страницы
+ * задание не ожидает завершения созданных им заданий
  */
 @Log4j2
-class LinkProcessor extends RecursiveAction {
-    public static final String URL_CHECK_REGEX_1 = ".+((/#)|(\\?)).*";   // проверка наличия в ссылке символов "#" и "?"
+class LinkProcessor implements CrawlTask {
     private final String url;                     // ссылка на текущую страницу
     private final AuxSiteData auxSiteData;                 // экземпляр класса AuxSiteData. Содержит информацию о сайте, карту которого необходимо создать
+    private final int depth;                      // глубина страницы от главной страницы сайта
+    private final Instant lastmod;                // дата изменения страницы из карты сайта; null, если не задана
+    private final double priority;                // приоритет страницы из карты сайта
+    private boolean pageBuffered = false;         // передана ли страница в буфер сохранения
 
     /**
-     * конструктор класса
+     * конструктор класса для главной страницы сайта
      *
      * @param url         ссылка на страницу
      * @param auxSiteData - сайт, к которому относится страница
      */
     public LinkProcessor(String url, AuxSiteData auxSiteData) {
+        this(url, auxSiteData, 0, null, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * конструктор класса
+     *
+     * @param url         ссылка на страницу
+     * @param auxSiteData - сайт, к которому относится страница
+     * @param depth       глубина страницы от главной страницы сайта
+     * @param lastmod     дата изменения страницы из карты сайта; null, если не задана
+     * @param priority    приоритет страницы из карты сайта
+     */
+    public LinkProcessor(String url, AuxSiteData auxSiteData, int depth, Instant lastmod, double priority) {
         this.url = url;
         this.auxSiteData = auxSiteData;
+        this.depth = depth;
+        this.lastmod = lastmod;
+        this.priority = priority;
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public double getPriority() {
+        return priority;
     }
 
     /**
-     * переопределение метода compute родительского класса RecursiveAction
+     * проверка, отменено ли задание
+     *
+     * @return true, если индексация сайта прервана или исчерпаны ограничения обхода
      */
     @Override
-    protected void compute() {
-        if (auxSiteData.isTerminated()) {
-            return;
+    public boolean isCancelled() {
+        return auxSiteData.isCrawlStopped();
+    }
+
+    /**
+     * запуск получения страницы; сохранение страницы и создание заданий для новых ссылок выполняются
+     * после получения ответа сервера
+     *
+     * @return CompletableFuture, завершающийся после обработки страницы
+     */
+    @Override
+    public CompletableFuture<Void> start() {
+        if (auxSiteData.isCrawlStopped()) {
+            auxSiteData.taskFinished();
+            return CompletableFuture.completedFuture(null);
         }
 
-        Set<String> allPageLinks; // сет ссылок текущей страницы
-        List<LinkProcessor> tasksList = new ArrayList<>(); // список заданий для запуска ForkJoinTask
+        String pageUrl = auxSiteData.getPageUrlFromRoot(url);
+        StoredPage storedPage = auxSiteData.takeStoredPage(pageUrl);
+
+        // страница, не изменившаяся по данным карты сайта, не запрашивается
+        CompletableFuture<FetchedPage> pageFuture = (storedPage != null && storedPage.isUnchangedSince(lastmod))
+                ? CompletableFuture.completedFuture(null) : fetchPage(url, storedPage);
 
+        return pageFuture
+                .thenAcceptAsync(page -> processPage(page, storedPage), auxSiteData.getCrawlScheduler().getExecutor())
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.warn(unwrap(ex));
+                    }
+                    // страница, переданная в буфер, отмечается пройденной в журнале после сохранения в БД;
+                    // страница, обработка которой прервана остановкой индексации, остаётся в очереди журнала
+                    if (!pageBuffered && !auxSiteData.isTerminated()) {
+                        auxSiteData.getCrawlJournal().done(pageUrl);
+                    }
+                    auxSiteData.taskFinished();
+                });
+    }
+
+    /**
+     * сохранение полученной страницы и создание заданий для новых ссылок
+     *
+     * @param page       полученная страница; null, если страница не запрашивалась
+     * @param storedPage данные страницы, сохранённые при предыдущей индексации; null для новой страницы
+     */
+    private void processPage(FetchedPage page, StoredPage storedPage) {
         try {
+            Document htmlDocument;
+            CrawlBudget crawlBudget = auxSiteData.getCrawlBudget();
+
+            if (page != null) {
+                crawlBudget.addBytes(page.getBodyLength());
+            }
+
+            if (storedPage != null && (page == null || page.isNotModified())) {
+                auxSiteData.pageNotModified();
+                htmlDocument = getStoredDocument(storedPage);
+            } else {
+                htmlDocument = savePageData(url, page, storedPage);
+            }
+
             // получение сета ссылок текущей страницы
-            allPageLinks = getAllPageLinks(url, auxSiteData);
+            Set<String> allPageLinks = crawlBudget.allowsDepth(depth + 1) ? getAllPageLinks(htmlDocument) : Set.of();
 
             for (String currentLink : allPageLinks) {
-                // проверка, использовалась ли уже ссылка для запуска ForkJoinTask
-                if (!auxSiteData.isUrlChecked(currentLink)) {
-                    auxSiteData.addCheckedUrl(currentLink);
-                    LinkProcessor task = new LinkProcessor(currentLink, auxSiteData);
-                    tasksList.add(task);
+                // задание создаётся, только если ссылка ещё не использовалась для создания задания
+                if (auxSiteData.addCheckedUrl(currentLink)) {
+                    if (!crawlBudget.tryAcquirePage()) {
+                        break;
+                    }
+                    auxSiteData.submitPage(currentLink, depth + 1, null, DEFAULT_PRIORITY);
                 }
             }
 
-            ForkJoinTask.invokeAll(tasksList);
-
             System.out.println("Site #" + auxSiteData.getSiteId() + ": " + auxSiteData.getCheckedUrlsQty() + " pages have been proceeded...");
-        } catch (Exception e) {
-            log.warn(e);
+        } catch (Exception ex) {
+            throw new CompletionException(ex);
         }
     }
 
     /**
-     * получение информации о странице: статус ответа, содержимое, список ссылок. Запуск записи информации о странице в БД.
+     * получение списка ссылок страницы, относящихся к сайту
+     * ссылки разрешаются относительно адреса документа и приводятся к каноническому виду;
+     * ссылки, обход которых запрещён robots.txt, не включаются
      *
-     * @param currentUrl  - ссылка на страницу
-     * @param auxSiteData - сайт, к которому относится страница
-     * @return
-     * @throws InterruptedException
-     * @throws IOException
+     * @param htmlDocument HTML документ страницы
+     * @return сет ссылок в каноническом виде
      */
-    private Set<String> getAllPageLinks(String currentUrl, AuxSiteData auxSiteData) throws Exception {
-        String rootUrl;
+    private Set<String> getAllPageLinks(Document htmlDocument) {
         Elements elementsWithLinks;
 
         Set<String> allPageLinks = new TreeSet<>();
-        rootUrl = auxSiteData.getRootUrl();
-
-        Document htmlDocument = getAndSavePageData(currentUrl);
+        UrlCanonicalizer urlCanonicalizer = auxSiteData.getUrlCanonicalizer();
 
         elementsWithLinks = htmlDocument.select("a[href]");
 
         for (Element element : elementsWithLinks) {
-            String link = element.attr("href");
+            String link = urlCanonicalizer.canonicalize(element.absUrl("href"));
 
-            if (!link.matches(URL_CHECK_REGEX_1)) {
-                if (link.startsWith(rootUrl)) {
-                    allPageLinks.add(link);
-                } else if (link.startsWith("/")) {
-                    allPageLinks.add(rootUrl + link);
-                }
+            if (link != null && auxSiteData.isAllowedUrl(link)) {
+                allPageLinks.add(link);
             }
         }
 
@@ -106,40 +189,115 @@ class LinkProcessor extends RecursiveAction {
 
     /**
      * получение кода ответа, body страницы и запуск их записи в базу данных
+     * поток ожидает получения страницы; используется для индексации отдельной страницы
      *
      * @param url ссылка на страницу
      * @return HTML документ страницы
      * @throws Exception
      */
     public Document getAndSavePageData(String url) throws Exception {
-        Connection.Response response;
-        int responseCode;
-        String body;
-        Document htmlDocument = new Document("");
-        String exceptionMessage = null;
+        FetchedPage page;
 
         try {
-            String userAgent = this.auxSiteData.getUserAgent();
-            String referrer = this.auxSiteData.getReferrer();
-            response = Jsoup.connect(url).userAgent(userAgent).referrer(referrer).maxBodySize(0).execute();
+            page = fetchPage(url, null).get();
+        } catch (ExecutionException ex) {
+            Throwable cause = unwrap(ex);
+            throw (cause instanceof Exception) ? (Exception) cause : ex;
+        }
+
+        return savePageData(url, page, null);
+    }
+
+    /**
+     * запуск асинхронного получения страницы
+     *
+     * @param url        ссылка на страницу
+     * @param storedPage данные страницы, сохранённые при предыдущей индексации; если заданы - запрос условный
+     * @return CompletableFuture, завершающийся полученной страницей
+     */
+    private CompletableFuture<FetchedPage> fetchPage(String url, StoredPage storedPage) {
+        String userAgent = auxSiteData.getUserAgent();
+        String referrer = auxSiteData.getReferrer();
+        String etag = (storedPage == null) ? null : storedPage.getEtag();
+        String lastModified = (storedPage == null) ? null : storedPage.getLastModified();
 
-            Thread.sleep(500);
+        return auxSiteData.getPageFetcher().fetch(url, userAgent, referrer, etag, lastModified);
+    }
 
-            responseCode = response.statusCode();
+    /**
+     * получение HTML документа неизменившейся страницы из сохранённого контента
+     *
+     * @param storedPage данные страницы, сохранённые при предыдущей индексации
+     * @return HTML документ страницы
+     */
+    private Document getStoredDocument(StoredPage storedPage) {
+        String content = auxSiteData.getSiteMapper().findPageContent(storedPage.getId());
 
-            htmlDocument = response.parse();
+        return Jsoup.parse(content, url);
+    }
+
+    /**
+     * разбор полученной страницы и запуск записи кода ответа и body страницы в базу данных
+     * страницы с ошибкой HTTP сохраняются с пустым body, после чего выбрасывается исключение;
+     * страницы, тип содержимого которых не является HTML, не сохраняются;
+     * страница, код ответа и хэш контента которой совпадают с сохранёнными, не сохраняется повторно
+     * для полученной HTML страницы извлекаются заголовок и текст (используются при лемматизации) и вычисляется SimHash текста,
+     * по которому при сохранении ищутся почти одинаковые страницы
+     *
+     * @param url        ссылка на страницу
+     * @param page       полученная страница
+     * @param storedPage данные страницы, сохранённые при предыдущей индексации; null для новой страницы
+     * @return HTML документ страницы
+     * @throws Exception
+     */
+    private Document savePageData(String url, FetchedPage page, StoredPage storedPage) throws Exception {
+        long parseStart = System.nanoTime();
+        int responseCode = page.getStatusCode();
+        String body = "";
+        Document htmlDocument = new Document("");
+        String exceptionMessage = null;
+        String pageTitle = null;
+        String pageText = null;
+        Long simHash = null;
+
+        if (!page.isSuccessful()) {
+            exceptionMessage = "HTTP error fetching URL. Status=" + responseCode + ", URL=" + url;
+        } else if (!page.isHtml()) {
+            throw new IOException("Unhandled content type " + page.getContentType() + ", URL=" + url);
+        } else {
+            htmlDocument = page.parse(url);
 
             body = htmlDocument.toString();
-        } catch (HttpStatusException ex) {
-            responseCode = ex.getStatusCode();
-            body = "";
-            exceptionMessage = ex.getMessage();
+            pageTitle = PageTextExtractor.getTitle(htmlDocument);
+            pageText = PageTextExtractor.getText(htmlDocument);
+            simHash = SimHash.compute(pageTitle + " " + pageText);
         }
 
-        String pageUrl = getPageUrlFromRoot(url);
+        String pageUrl = auxSiteData.getPageUrlFromRoot(url);
+        long contentHash = UtilService.getFingerprint(body);
 
         SiteMappingService siteMappingService = this.auxSiteData.getSiteMapper();
-        siteMappingService.proceedWithPageData(pageUrl, responseCode, body, auxSiteData.getSiteId());
+        siteMappingService.recordParsed(parseStart);
+
+        if (storedPage != null && storedPage.isSameContent(responseCode, contentHash)) {
+            auxSiteData.pageNotModified();
+            if (!storedPage.isSameValidators(page.getEtag(), page.getLastModified())) {
+                siteMappingService.updatePageValidators(storedPage.getId(), page.getEtag(), page.getLastModified());
+            }
+        } else {
+            Page newPage = new Page(pageUrl, responseCode, body, auxSiteData.getSiteId());
+            newPage.setEtag(page.getEtag());
+            newPage.setLastModified(page.getLastModified());
+            newPage.setContentHash(contentHash);
+            newPage.setSimHash(simHash);
+            newPage.setPageTitle(pageTitle);
+            newPage.setPageText(pageText);
+            if (storedPage != null) {
+                newPage.setId(storedPage.getId());
+            }
+
+            pageBuffered = siteMappingService.proceedWithPageData(newPage);
+        }
 
         if (null != exceptionMessage) {
             throw new Exception(exceptionMessage);
@@ -149,19 +307,17 @@ class LinkProcessor extends RecursiveAction {
     }
 
     /**
-     * получение ссылки на страницу от корня сайта
+     * получение исходного исключения из исключений-обёрток CompletableFuture
      *
-     * @param fullPageUrl полная ссылка на страницу (начинается с ссылки на сайт)
-     * @return ссылка на страницу от корня сайта
+     * @param ex исключение
+     * @return исходное исключение
      */
-    private String getPageUrlFromRoot(String fullPageUrl) {
-        String pageUrl;
-        if (fullPageUrl.equals(auxSiteData.getRootUrl())) {
-            pageUrl = "/";
-        } else {
-            pageUrl = fullPageUrl.substring(auxSiteData.getRootUrlLen());
+    private static Throwable unwrap(Throwable ex) {
+        Throwable cause = ex;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
         }
-
-        return pageUrl;
+        return cause;
     }
-}
\ No newline at end of file
+}
@@ -30,4 +30,12 @@ public interface MappingIndexingService {
      * @param site сайт, данные о котором необходимо удалить
      */
     void removeSiteData(Site site);
+
+    /**
+     * проверка, будет ли продолжен прерванный обход сайта
+     *
+     * @param site сайт
+     * @return true, если обход будет продолжен и данные сайта не должны удаляться
+     */
+    boolean canResume(Site site);
 }
@@ -11,10 +11,14 @@ import searchengine.model.Site;
 import searchengine.model.SiteStatus;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * класс, используемый для получения карты сайта и запуска индексации
@@ -28,9 +32,17 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
     private final PageIndexingService pageIndexingService;
     private final SiteService siteService;
     private final LoggingService loggingService;
+    private final CrawlScheduler crawlScheduler;
+    private final PageFetcher pageFetcher;
     private final Set<Page> pagesBuffer = new ConcurrentSkipListSet<>();
     private int bufferSize = 0;
     private Site processingSite;
+    private SiteStatus crawlStatus = SiteStatus.INDEXING; // статус сайта во время обхода страниц
+    private NearDuplicateIndex nearDuplicateIndex;       // SimHash проиндексированных страниц сайта; null - проверка отключена
+    private int aliasesQty = 0;                          // количество страниц, сохранённых как почти одинаковые
+    private CrawlJournal crawlJournal = CrawlJournal.DISABLED; // журнал очереди обхода на диске
+    private volatile IndexingPipeline indexingPipeline;  // конвейер лемматизации и сохранения страниц при обходе сайта
+    private boolean bulkLoad = false;                    // загрузка индексов командой LOAD DATA при полной индексации
 
     private AuxSiteData auxSiteData;
 
@@ -39,34 +51,126 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
 
     @Autowired
     public MappingIndexingServiceImpl(PageService pageService, Config config, PageIndexingService pageIndexingService,
-                                      SiteService siteService, LoggingService loggingService) {
+                                      SiteService siteService, LoggingService loggingService,
+                                      CrawlScheduler crawlScheduler, PageFetcher pageFetcher) {
         this.pageService = pageService;
         this.config = config;
         this.pageIndexingService = pageIndexingService;
         this.siteService = siteService;
         this.loggingService = loggingService;
+        this.crawlScheduler = crawlScheduler;
+        this.pageFetcher = pageFetcher;
     }
 
     /**
      * Запуск процесса получения всех страниц сайта и их индексации
+     * при повторной индексации (incrementalIndexing) данные сайта не удаляются заранее: сохраняются и индексируются
+     * только новые и изменившиеся страницы, страницы, не найденные при обходе, удаляются после его завершения;
+     * проиндексированный ранее сайт сохраняет статус INDEXED и остаётся доступным для поиска
+     * страницы, почти одинаковые с уже проиндексированными страницами сайта, сохраняются без индексации
+     * очередь обхода записывается в журнал на диске (crawlStateDir); если обход был прерван, а продолжение обхода
+     * разрешено (resumeIndexing), обход продолжается с сохранённой очереди, данные сайта при этом не удаляются
+     * полученные страницы лемматизируются и сохраняются конвейером индексации (IndexingPipeline) одновременно с обходом
+     * при полной (не повторной) индексации индексы могут загружаться в БД командой LOAD DATA (bulkLoadIndexing)
+     * если индексация была остановлена, пока сайт ожидал в очереди пула индексации, обход не начинается
      */
     @Override
     public void getAndIndexPages(Site site) {
         this.processingSite = site;
 
-        setProcessingSiteStatus(SiteStatus.INDEXING, null);
+        if (isTerminated) {
+            setProcessingSiteStatus(SiteStatus.FAILED, "Индексация была принудительно остановлена");
+            loggingService.logCustom("Индексация сайта \"" + site.getName() + "\" прервана до начала обхода");
+            return;
+        }
 
-        LinkProcessor linkProcessor = prepareLinkProcessor(site);
+        boolean incremental = config.isIncrementalIndexing();
+        crawlStatus = (incremental && site.getStatus() == SiteStatus.INDEXED) ? SiteStatus.INDEXED : SiteStatus.INDEXING;
+
+        setProcessingSiteStatus(crawlStatus, null);
+
+        bulkLoad = config.isBulkLoadIndexing() && !incremental;
 
-        ForkJoinPool pool = ForkJoinPool.commonPool();
-        pool.invoke(linkProcessor);
-        pool.shutdown();
+        prepareLinkProcessor(site);
+
+        // при повторной индексации данные сайта не удаляются, поэтому продолжение прерванного обхода не требуется
+        crawlJournal = incremental ? CrawlJournal.DISABLED
+                : CrawlJournal.open(config.getCrawlStateDir(), site.getUrl(), config.isResumeIndexing());
+        auxSiteData.setCrawlJournal(crawlJournal);
+
+        int nearDuplicateDistance = config.getNearDuplicateDistance();
+        nearDuplicateIndex = (nearDuplicateDistance < 0) ? null : new NearDuplicateIndex(nearDuplicateDistance);
+
+        if (incremental) {
+            loadStoredPages();
+        }
+        if (crawlJournal.isRestored()) {
+            removeUnindexedPages();
+        }
+        if (incremental || crawlJournal.isRestored()) {
+            loadSimHashes();
+        }
 
+        RobotsRules robotsRules = applyRobotsRules();
+
+        indexingPipeline = new IndexingPipeline(site.getId(), this::lemmatizePage, this::savePagesBatch, bufferSize,
+                config.getPipelineQueueSize(), config.getLemmatizerThreads(), config.getWriterThreads());
         if (isTerminated) {
+            indexingPipeline.terminate();
+        }
+
+        auxSiteData.submitInitialTasks(() -> {
+            // пока задание заполнения очереди из карт сайта не завершено, обход не закончится
+            int sitemapMaxUrls = config.getSitemapMaxUrls();
+            if (sitemapMaxUrls > 0 && !crawlJournal.isSeeded()) {
+                auxSiteData.submitTask(new SitemapSeedTask(auxSiteData, robotsRules.getSitemaps(), sitemapMaxUrls));
+            }
+
+            if (crawlJournal.isRestored()) {
+                resumeCrawl();
+            } else {
+                String rootPageUrl = auxSiteData.getUrlCanonicalizer().getRootPageUrl();
+                auxSiteData.addCheckedUrl(rootPageUrl);
+                auxSiteData.getCrawlBudget().tryAcquirePage();
+                auxSiteData.submitPage(rootPageUrl, 0, null, CrawlTask.DEFAULT_PRIORITY);
+            }
+        });
+
+        try {
+            auxSiteData.awaitCompletion();
+            if (!isTerminated) {
+                indexingPipeline.finish();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            terminate();
+            auxSiteData.terminate();
+        }
+
+        System.out.println(indexingPipeline.getStats());
+
+        if (isTerminated) {
+            awaitPipelineTermination();
+            crawlJournal.close();
             setProcessingSiteStatus(SiteStatus.FAILED, "Индексация была принудительно остановлена");
+        } else if (indexingPipeline.getFailure() != null) {
+            // журнал сохраняется: страницы несохранённых порций не отмечены пройденными и будут обработаны
+            // при продолжении обхода
+            crawlJournal.close();
+            setProcessingSiteStatus(SiteStatus.FAILED, indexingPipeline.getFailure());
         } else {
-            avoidDuplicatesInBuffer();
-            saveAndIndexPages();
+            // при достижении ограничений обхода часть страниц сайта не пройдена и не может считаться удалённой
+            String limitReached = auxSiteData.getCrawlBudget().getLimitReached();
+            if (limitReached != null) {
+                System.out.println("Site #" + site.getId() + ": crawl limit reached (" + limitReached + "), "
+                        + auxSiteData.getCrawlBudget().getBytesQty() + " bytes fetched");
+            } else if (incremental) {
+                removeStalePages();
+            }
+            if (nearDuplicateIndex != null) {
+                System.out.println("Site #" + processingSite.getId() + ": " + aliasesQty + " near-duplicate pages saved without indexing");
+            }
+            crawlJournal.delete();
             setProcessingSiteStatus(SiteStatus.INDEXED, null);
         }
 
@@ -74,12 +178,31 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
 
     }
 
+    /**
+     * проверка, будет ли продолжен прерванный обход сайта
+     * в этом случае данные сайта не должны удаляться перед индексацией
+     *
+     * @param site сайт
+     * @return true, если обход сайта был прерван, его журнал сохранён и продолжение обхода разрешено
+     */
+    @Override
+    public boolean canResume(Site site) {
+        return !config.isIncrementalIndexing() && config.isResumeIndexing()
+                && CrawlJournal.exists(config.getCrawlStateDir(), site.getUrl());
+    }
+
     /**
      * Установка переменной isTerminated = true для остановки индексации
+     * конвейер индексации прекращает работу, страницы, оставшиеся в его очередях, не сохраняются
      */
     @Override
     public void terminate() {
         isTerminated = true;
+
+        IndexingPipeline pipeline = indexingPipeline;
+        if (pipeline != null) {
+            pipeline.terminate();
+        }
     }
 
     /**
@@ -99,7 +222,11 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
         }
         processingSite = site;
 
-        List<Page> foundPages = findPage(pageUrl, site);
+        // ссылка приводится к каноническому виду, как ссылки, найденные при обходе сайта
+        UrlCanonicalizer urlCanonicalizer = new UrlCanonicalizer(site.getUrl(), config.getUrlQueryAllowlist());
+        String canonicalPageUrl = urlCanonicalizer.canonicalize(pageUrl);
+
+        List<Page> foundPages = findPage(canonicalPageUrl, urlCanonicalizer.getRootUrl(), site.getId());
 
         Page pageForReindexing = null;
 
@@ -109,7 +236,7 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
             pageForReindexing = foundPages.get(0);
         }
 
-        int indexingResult = startSinglePageIndexingProcess(pageUrl, pageForReindexing, site);
+        int indexingResult = startSinglePageIndexingProcess(canonicalPageUrl, pageForReindexing, site);
 
         return indexingResult;
     }
@@ -136,14 +263,22 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
         }
 
         if (null != pageForReindexing) {
-            pageIndexingService.deletePageIndexData(pageForReindexing);
             if (!modifyPageInBuffer(pageForReindexing)) {
                 setProcessingSiteStatus(SiteStatus.FAILED, "Не удалось получить содержимое страницы");
                 return -1;
             }
         }
 
-        saveAndIndexPages();
+        List<LemmatizedPage> lemmatizedPages = pagesBuffer.stream().map(this::lemmatizePage).collect(Collectors.toList());
+        pagesBuffer.clear();
+
+        try {
+            saveAndIndexPages(lemmatizedPages, false);
+        } catch (Exception ex) {
+            log.error(ex);
+            setProcessingSiteStatus(SiteStatus.FAILED, ex.getMessage());
+            return -1;
+        }
 
         setProcessingSiteStatus(SiteStatus.INDEXED, null);
 
@@ -151,31 +286,71 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
     }
 
     /**
-     * создание страниц, добавление в буфер
-     * при достижении заданного размера буфера, запуск их сохранения и индексации
+     * передача страницы в конвейер индексации при обходе сайта, либо добавление в буфер при индексации отдельной страницы
+     * если очередь конвейера заполнена, поток обхода ожидает освобождения места
      *
-     * @param pageUrl      ссылка на страницу
-     * @param responseCode код http ответа
-     * @param pageContent  содержание страницы
+     * @param page страница
      * @return true - в случае успеха, false - в случае прерывания процесса индексации
      */
     @Override
-    public synchronized boolean proceedWithPageData(String pageUrl, int responseCode,
-                                                    String pageContent, int siteId) {
+    public boolean proceedWithPageData(Page page) {
         if (isTerminated) {
             auxSiteData.terminate();
             return false;
         }
-        Page page = new Page(pageUrl, responseCode, pageContent, siteId);
-        pagesBuffer.add(page);
 
-        if (pagesBuffer.size() >= bufferSize) {
-            avoidDuplicatesInBuffer();
-            saveAndIndexPages();
+        IndexingPipeline pipeline = indexingPipeline;
+        if (pipeline == null) {
+            pagesBuffer.add(page);
+            return true;
+        }
+
+        if (!pipeline.submit(page)) {
+            auxSiteData.terminate();
+            return false;
         }
         return true;
     }
 
+    /**
+     * учёт разбора страницы в счётчиках конвейера индексации
+     *
+     * @param startNanos время начала разбора страницы (System.nanoTime)
+     */
+    @Override
+    public void recordParsed(long startNanos) {
+        IndexingPipeline pipeline = indexingPipeline;
+        if (pipeline != null) {
+            pipeline.recordParsed(startNanos);
+        }
+    }
+
+    /**
+     * получение сохранённого контента страницы
+     *
+     * @param pageId id страницы
+     * @return контент страницы; пустая строка, если страница не найдена
+     */
+    @Override
+    public String findPageContent(int pageId) {
+        for (Page page : pageService.findAllById(List.of(pageId))) {
+            return page.getPageContent();
+        }
+        return "";
+    }
+
+    /**
+     * сохранение новых заголовков ETag и Last-Modified неизменившейся страницы
+     *
+     * @param pageId       id страницы
+     * @param etag         заголовок ETag
+     * @param lastModified заголовок Last-Modified
+     */
+    @Override
+    public void updatePageValidators(int pageId, String etag, String lastModified) {
+        pageService.updateValidators(pageId, etag, lastModified);
+    }
+
     /**
      * удаление данных, относящихся к сайту, из таблиц: page, lemma, index
      *
@@ -191,26 +366,164 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
 
 
     /**
-     * сохраниение всех страниц из буфера в БД и запуск их индексации
+     * лемматизация страницы (этап лемматизации конвейера индексации)
+     * страницы с кодом ответа, отличным от 200, не индексируются
+     * страница, почти одинаковая с одной из проиндексированных страниц сайта, не лемматизируется и не индексируется:
+     * ей присваивается id найденной страницы (aliasOf), который сохраняется вместе со страницей
+     *
+     * @param page страница
+     * @return страница, подготовленная к сохранению
+     */
+    private LemmatizedPage lemmatizePage(Page page) {
+        if (page.getResponseCode() != 200) {
+            return new LemmatizedPage(page, null);
+        }
+
+        Integer canonicalPageId = findNearDuplicate(page);
+        if (canonicalPageId != null) {
+            page.setAliasOf(canonicalPageId);
+            return new LemmatizedPage(page, null);
+        }
+
+        return pageIndexingService.lemmatizePage(page);
+    }
+
+    /**
+     * сохранение порции страниц, полученных при обходе сайта (этап сохранения конвейера индексации)
+     *
+     * @param batch порция страниц
+     */
+    private void savePagesBatch(List<LemmatizedPage> batch) {
+        saveAndIndexPages(avoidDuplicates(batch), bulkLoad);
+    }
+
+    /**
+     * сохраниение страниц в БД и их индексов
+     * для страниц, заменяющих существующие (задан id), прежние данные индекса предварительно удаляются
+     * почти одинаковые с проиндексированными страницы не индексируются; SimHash остальных страниц добавляется
+     * в индекс после сохранения страниц, когда известны их id
+     * страницы отмечаются в журнале обхода пройденными после сохранения индексов; при ошибке сохранения
+     * исключение передаётся вызывающему методу, а страницы остаются в очереди журнала
+     *
+     * @param lemmatizedPages страницы, подготовленные к сохранению
+     * @param bulkLoad        true - индексы загружаются в БД командой LOAD DATA
      */
-    private void saveAndIndexPages() {
+    private void saveAndIndexPages(List<LemmatizedPage> lemmatizedPages, boolean bulkLoad) {
         // Profiling
         long start = System.currentTimeMillis();
 
-        pageService.saveAll(pagesBuffer);
+        List<Page> pages = lemmatizedPages.stream().map(LemmatizedPage::getPage).collect(Collectors.toList());
+
+        for (Page currentPage : pages) {
+            if (currentPage.getId() != 0) {
+                pageIndexingService.deletePageIndexData(currentPage);
+            }
+        }
+
+        pageService.saveAll(pages);
 
         // Profiling
         long pagesSaved = System.currentTimeMillis();
-        System.out.println("Site #" + processingSite.getId() + ": " + pagesBuffer.size() + " pages saved " + (pagesSaved - start) + " ms");
+        System.out.println("Site #" + processingSite.getId() + ": " + pages.size() + " pages saved " + (pagesSaved - start) + " ms");
+
+        List<LemmatizedPage> pagesToIndex = new ArrayList<>();
 
-        for (Page currentPage : pagesBuffer) {
-            if (currentPage.getResponseCode() == 200) {
-                System.out.println("Site # " + processingSite.getId() + " page # " + currentPage.getId() + " indexing started. Site indexer ==> " + pageIndexingService);
-                pageIndexingService.indexPage(currentPage);
-                setProcessingSiteStatus(SiteStatus.INDEXING, null);
+        for (LemmatizedPage lemmatizedPage : lemmatizedPages) {
+            Page currentPage = lemmatizedPage.getPage();
+
+            if (currentPage.getAliasOf() != null) {
+                removeSimHash(currentPage.getId());
+            } else if (lemmatizedPage.isIndexable() && !saveAsNearDuplicate(currentPage)) {
+                pagesToIndex.add(lemmatizedPage);
             }
         }
-        pagesBuffer.clear();
+
+        pageIndexingService.saveLemmatizedPages(pagesToIndex, bulkLoad);
+
+        // страница отмечается в журнале пройденной только после сохранения её индексов
+        for (Page currentPage : pages) {
+            crawlJournal.done(currentPage.getPageUrl());
+        }
+
+        // Profiling
+        System.out.println("Site #" + processingSite.getId() + ": " + pagesToIndex.size() + " pages indexed "
+                + (System.currentTimeMillis() - pagesSaved) + " ms");
+
+        setProcessingSiteStatus(crawlStatus, null);
+    }
+
+    /**
+     * ожидание завершения потоков конвейера индексации после прерывания индексации
+     */
+    private void awaitPipelineTermination() {
+        try {
+            indexingPipeline.awaitTermination();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * поиск проиндексированной страницы сайта, почти одинаковой с заданной (перед лемматизацией страницы)
+     *
+     * @param page полученная страница с кодом ответа 200
+     * @return id найденной страницы; null, если страница не найдена или проверка отключена
+     */
+    private synchronized Integer findNearDuplicate(Page page) {
+        if (nearDuplicateIndex == null || page.getSimHash() == null) {
+            return null;
+        }
+
+        Integer canonicalPageId = nearDuplicateIndex.findDuplicate(page.getSimHash(), page.getId());
+        if (canonicalPageId != null) {
+            ++aliasesQty;
+        }
+        return canonicalPageId;
+    }
+
+    /**
+     * удаление SimHash страницы, сохранённой как почти одинаковая, из индекса
+     * (при повторной индексации страница могла быть проиндексирована ранее)
+     *
+     * @param pageId id страницы
+     */
+    private synchronized void removeSimHash(int pageId) {
+        if (nearDuplicateIndex != null) {
+            nearDuplicateIndex.remove(pageId);
+        }
+    }
+
+    /**
+     * добавление SimHash сохранённой страницы в индекс
+     * страницы одной порции, лемматизированные одновременно, не находят друг друга при лемматизации, поэтому
+     * проверка повторяется: найденная почти одинаковая страница сохраняется с указанием найденной страницы
+     *
+     * @param page сохранённая страница с кодом ответа 200
+     * @return true, если страница сохранена как почти одинаковая и не должна индексироваться
+     */
+    private synchronized boolean saveAsNearDuplicate(Page page) {
+        if (nearDuplicateIndex == null) {
+            return false;
+        }
+
+        Long simHash = page.getSimHash();
+        if (simHash == null) {
+            nearDuplicateIndex.remove(page.getId());
+            return false;
+        }
+
+        Integer canonicalPageId = nearDuplicateIndex.findDuplicate(simHash, page.getId());
+        if (canonicalPageId == null) {
+            nearDuplicateIndex.add(simHash, page.getId());
+            return false;
+        }
+
+        nearDuplicateIndex.remove(page.getId());
+        pageService.updateAliasOf(page.getId(), canonicalPageId);
+        page.setAliasOf(canonicalPageId);
+        ++aliasesQty;
+
+        return true;
     }
 
     /**
@@ -227,7 +540,11 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
         }
         String userAgent = config.getUserAgent();
         String referrer = config.getReferrer();
-        auxSiteData = new AuxSiteData(site, this, userAgent, referrer);
+        auxSiteData = new AuxSiteData(site, this, userAgent, referrer, crawlScheduler, pageFetcher,
+                VisitedUrls.create(config.getUrlBloomFilterMb()),
+                new UrlCanonicalizer(site.getUrl(), config.getUrlQueryAllowlist()),
+                new CrawlBudget(config.getCrawlMaxDepth(), config.getCrawlMaxPages(),
+                        config.getCrawlMaxMb() * 1024L * 1024L, config.getCrawlMaxMinutes()));
         System.out.println("===========>Mapper: " + this);
 
         String siteUrl = site.getUrl();
@@ -235,8 +552,125 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
         return new LinkProcessor(siteUrl, auxSiteData);
     }
 
+    /**
+     * загрузка данных страниц, сохранённых при предыдущей индексации сайта, для условных запросов
+     * и определения изменившихся страниц
+     */
+    private void loadStoredPages() {
+        Map<String, StoredPage> storedPages = new HashMap<>();
+
+        for (Object[] row : pageService.findValidatorsBySiteId(processingSite.getId())) {
+            StoredPage storedPage = new StoredPage((Integer) row[0], (Integer) row[2], (String) row[3],
+                    (String) row[4], (Long) row[5]);
+            storedPages.put((String) row[1], storedPage);
+        }
+
+        auxSiteData.putStoredPages(storedPages);
+    }
+
+    /**
+     * удаление страниц, сохранённых при прерванном обходе, индексы которых не были сохранены
+     * (обход был прерван между сохранением страниц и их индексов)
+     * страница отмечается в журнале пройденной только после сохранения её индексов, поэтому удаляются страницы,
+     * ссылки на которые остались в журнале непройденными; страницы без индексов, отмеченные пройденными
+     * (например, страницы без лемм), не удаляются
+     * удалённые страницы будут запрошены и проиндексированы заново
+     */
+    private void removeUnindexedPages() {
+        List<String> pendingPaths = crawlJournal.getPending().stream()
+                .map(CrawlJournal.Entry::getPath)
+                .collect(Collectors.toList());
+        List<Integer> unindexedPageIds = pageService.findIdsByPaths(processingSite.getId(), pendingPaths);
+
+        pageService.deleteAliasesOf(unindexedPageIds);
+        pageService.deleteByIds(unindexedPageIds);
+
+        System.out.println("Site #" + processingSite.getId() + ": " + unindexedPageIds.size()
+                + " unindexed pages removed before resuming crawl");
+    }
+
+    /**
+     * продолжение прерванного обхода: страницы, сохранённые в БД, считаются пройденными,
+     * остальные страницы из журнала ставятся в очередь обхода
+     */
+    private void resumeCrawl() {
+        String rootUrl = auxSiteData.getRootUrl();
+
+        for (String pageUrl : pageService.findPathsBySiteId(processingSite.getId())) {
+            auxSiteData.addCheckedUrl(rootUrl + pageUrl);
+            crawlJournal.done(pageUrl);
+        }
+
+        int resumedQty = 0;
+
+        for (CrawlJournal.Entry entry : crawlJournal.getPending()) {
+            String url = rootUrl + entry.getPath();
+
+            if (auxSiteData.addCheckedUrl(url) && auxSiteData.getCrawlBudget().tryAcquirePage()) {
+                auxSiteData.submitTask(new LinkProcessor(url, auxSiteData, entry.getDepth(), entry.getLastmod(),
+                        entry.getPriority()));
+                ++resumedQty;
+            }
+        }
+
+        System.out.println("Site #" + processingSite.getId() + ": crawl resumed, " + resumedQty + " pages queued");
+    }
+
+    /**
+     * загрузка SimHash страниц, проиндексированных при предыдущей индексации сайта
+     */
+    private void loadSimHashes() {
+        if (nearDuplicateIndex == null) {
+            return;
+        }
+
+        for (Object[] row : pageService.findSimHashesBySiteId(processingSite.getId())) {
+            nearDuplicateIndex.add((Long) row[1], (Integer) row[0]);
+        }
+    }
+
+    /**
+     * удаление страниц предыдущей индексации, которые не были найдены при обходе сайта, и их данных индекса
+     * страницы, сохранённые как почти одинаковые с удаляемыми, также удаляются: при следующей индексации
+     * они будут сохранены и проиндексированы как новые
+     */
+    private void removeStalePages() {
+        List<Integer> stalePageIds = new ArrayList<>();
+
+        for (StoredPage storedPage : auxSiteData.getRemainingStoredPages()) {
+            Page stalePage = new Page();
+            stalePage.setId(storedPage.getId());
+            stalePage.setSiteId(processingSite.getId());
+
+            pageIndexingService.deletePageIndexData(stalePage);
+            stalePageIds.add(storedPage.getId());
+        }
+
+        pageService.deleteAliasesOf(stalePageIds);
+        pageService.deleteByIds(stalePageIds);
+
+        System.out.println("Site #" + processingSite.getId() + ": " + auxSiteData.getNotModifiedPagesQty()
+                + " pages not modified, " + stalePageIds.size() + " pages removed");
+    }
+
+    /**
+     * загрузка robots.txt сайта, передача планировщику обхода значения Crawl-delay
+     * и правил Allow / Disallow - объекту AuxSiteData для проверки найденных ссылок
+     *
+     * @return правила обхода сайта
+     */
+    private RobotsRules applyRobotsRules() {
+        RobotsRules robotsRules = RobotsRules.load(auxSiteData.getRootUrl(), config.getUserAgent());
+
+        crawlScheduler.setCrawlDelay(auxSiteData.getHost(), robotsRules.getCrawlDelay());
+        auxSiteData.setRobotsRules(robotsRules);
+
+        return robotsRules;
+    }
+
     /**
      * проверка, относится ли страница к одному из сайтов, указанных в конфигурационном файле
+     * страница относится к сайту, если её ссылка приводится к каноническому виду относительно ссылки на сайт
      *
      * @param pageUrl ссылка на страницу
      * @return объект Site, к которому относится страница; null, если таких страниц не найдено
@@ -245,9 +679,9 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
         Iterable<Site> sites = siteService.findAll();
 
         for (Site site : sites) {
-            String siteUrl = site.getUrl();
+            UrlCanonicalizer urlCanonicalizer = new UrlCanonicalizer(site.getUrl(), config.getUrlQueryAllowlist());
 
-            if (pageUrl.startsWith(siteUrl)) {
+            if (urlCanonicalizer.canonicalize(pageUrl) != null) {
                 return site;
             }
         }
@@ -259,19 +693,18 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
     /**
      * поиск страницы в базе данных по ссылке и сайту
      *
-     * @param pageUrl ссылка на страницу
-     * @param site    сайт, к которому страница относится
+     * @param pageUrl ссылка на страницу в каноническом виде
+     * @param rootUrl ссылка на сайт в каноническом виде без "/" в конце
+     * @param siteId  id сайта, к которому страница относится
      * @return список с найденными страницами
      */
-    private List<Page> findPage(String pageUrl, Site site) {
+    private List<Page> findPage(String pageUrl, String rootUrl, int siteId) {
         String urlToFind;
-        int siteId = site.getId();
-        String siteUrl = site.getUrl();
 
-        if (pageUrl.equals(siteUrl)) {
+        if (pageUrl.equals(rootUrl)) {
             urlToFind = "/";
         } else {
-            urlToFind = pageUrl.substring(siteUrl.length() - 1);
+            urlToFind = pageUrl.substring(rootUrl.length());
         }
 
         List<Page> pages = pageService.findByUrlAndSiteId(urlToFind, siteId);
@@ -312,11 +745,33 @@ class MappingIndexingServiceImpl implements MappingIndexingService, SiteMappingS
     }
 
     /**
-     * проверка наличия в базе данных страниц из буфера (по pageUrl и siteId)
-     * в случае, если страницы уже существуют в базе данных, они удаляются из буфера
+     * проверка наличия в базе данных страниц порции (по pageUrl и siteId)
+     * страницы, которые уже существуют в базе данных, а также повторы страниц в порции исключаются
+     * страницы, заменяющие существующие (с заданным id), не проверяются
+     *
+     * @param batch порция страниц
+     * @return страницы порции, которые необходимо сохранить
      */
-    private void avoidDuplicatesInBuffer() {
-        List<Page> existPages = pageService.findByPagesAndSiteId(pagesBuffer, processingSite.getId());
-        pagesBuffer.removeAll(existPages);
+    private List<LemmatizedPage> avoidDuplicates(List<LemmatizedPage> batch) {
+        Map<String, LemmatizedPage> uniquePages = new LinkedHashMap<>();
+        List<Page> newPages = new ArrayList<>();
+
+        for (LemmatizedPage lemmatizedPage : batch) {
+            Page page = lemmatizedPage.getPage();
+            if (uniquePages.putIfAbsent(page.getPageUrl(), lemmatizedPage) == null && page.getId() == 0) {
+                newPages.add(page);
+            }
+        }
+
+        if (!newPages.isEmpty()) {
+            for (Page existPage : pageService.findByPagesAndSiteId(newPages, processingSite.getId())) {
+                LemmatizedPage lemmatizedPage = uniquePages.get(existPage.getPageUrl());
+                if (lemmatizedPage != null && lemmatizedPage.getPage().getId() == 0) {
+                    uniquePages.remove(existPage.getPageUrl());
+                }
+            }
+        }
+
+        return new ArrayList<>(uniquePages.values());
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package searchengine.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * индекс SimHash страниц сайта для поиска почти одинаковых страниц
+ * 64 бита отпечатка делятся на maxDistance + 1 полос: если отпечатки отличаются не более чем в maxDistance битах,
+ * хотя бы одна полоса у них совпадает полностью; поэтому кандидаты ищутся по точному совпадению полос,
+ * а расстояние Хэмминга проверяется только для них
+ * экземпляр не является потокобезопасным
+ */
+final class NearDuplicateIndex {
+    private final int maxDistance;      // максимальное количество различающихся битов почти одинаковых страниц
+    private final int bandsQty;         // количество полос
+    private final int bandWidth;        // ширина полосы, бит (последняя полоса может быть шире)
+    private final Map<Integer, Long> simHashes = new HashMap<>(); // key = id страницы, value = текущий отпечаток
+    private final List<Map<Long, List<Integer>>> bands = new ArrayList<>(); // для каждой полосы: значение полосы -> id страниц
+
+    /**
+     * конструктор класса
+     *
+     * @param maxDistance максимальное количество различающихся битов почти одинаковых страниц (0 - только одинаковые)
+     */
+    NearDuplicateIndex(int maxDistance) {
+        this.maxDistance = maxDistance;
+        this.bandsQty = Math.min(maxDistance + 1, 64);
+        this.bandWidth = 64 / bandsQty;
+
+        for (int i = 0; i < bandsQty; i++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * поиск страницы, почти одинаковой с заданной
+     *
+     * @param simHash       отпечаток страницы
+     * @param excludePageId id страницы, которая не должна быть найдена (сама проверяемая страница)
+     * @return id найденной страницы; null, если страница не найдена
+     */
+    Integer findDuplicate(long simHash, int excludePageId) {
+        for (int band = 0; band < bandsQty; band++) {
+            List<Integer> candidates = bands.get(band).get(getBandValue(simHash, band));
+            if (candidates == null) {
+                continue;
+            }
+
+            for (Integer pageId : candidates) {
+                Long candidateSimHash = simHashes.get(pageId);
+
+                if (pageId != excludePageId && candidateSimHash != null
+                        && SimHash.distance(simHash, candidateSimHash) <= maxDistance) {
+                    return pageId;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * добавление или замена отпечатка страницы
+     * записи полос прежнего отпечатка страницы удаляются
+     *
+     * @param simHash отпечаток страницы
+     * @param pageId  id страницы
+     */
+    void add(long simHash, int pageId) {
+        Long previousSimHash = simHashes.put(pageId, simHash);
+        if (previousSimHash != null) {
+            removeFromBands(previousSimHash, pageId);
+        }
+
+        for (int band = 0; band < bandsQty; band++) {
+            bands.get(band).computeIfAbsent(getBandValue(simHash, band), key -> new ArrayList<>(1)).add(pageId);
+        }
+    }
+
+    /**
+     * удаление отпечатка страницы
+     *
+     * @param pageId id страницы
+     */
+    void remove(int pageId) {
+        Long simHash = simHashes.remove(pageId);
+        if (simHash != null) {
+            removeFromBands(simHash, pageId);
+        }
+    }
+
+    /**
+     * удаление id страницы из записей полос отпечатка; пустые записи удаляются
+     *
+     * @param simHash отпечаток страницы
+     * @param pageId  id страницы
+     */
+    private void removeFromBands(long simHash, int pageId) {
+        for (int band = 0; band < bandsQty; band++) {
+            Map<Long, List<Integer>> bandPages = bands.get(band);
+            long bandValue = getBandValue(simHash, band);
+            List<Integer> pageIds = bandPages.get(bandValue);
+
+            if (pageIds != null) {
+                pageIds.remove(Integer.valueOf(pageId));
+                if (pageIds.isEmpty()) {
+                    bandPages.remove(bandValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * получение значения полосы отпечатка
+     *
+     * @param simHash отпечаток
+     * @param band    номер полосы
+     * @return биты полосы
+     */
+    private long getBandValue(long simHash, int band) {
+        int start = band * bandWidth;
+        int width = (band == bandsQty - 1) ? 64 - start : bandWidth;
+
+        return (width == 64) ? simHash : (simHash >>> start) & ((1L << width) - 1);
+    }
+}
@@ -0,0 +1,26 @@
+package searchengine.services;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * интерфейс, используемый для получения страниц сайтов по HTTP
+ * реализация выбирается параметром fetcher конфигурационного файла
+ */
+interface PageFetcher {
+    /**
+     * асинхронное получение страницы
+     * ошибки HTTP (коды 4xx, 5xx) не считаются ошибками получения: код ответа возвращается в FetchedPage;
+     * ошибки соединения и ввода-вывода завершают CompletableFuture исключением
+     * если заданы etag или lastModified, запрос выполняется условно (If-None-Match, If-Modified-Since):
+     * для неизменившейся страницы сервер возвращает код 304 без содержимого
+     *
+     * @param url          ссылка на страницу
+     * @param userAgent    user agent
+     * @param referrer     referrer
+     * @param etag         ETag, полученный при предыдущем запросе страницы; null - не используется
+     * @param lastModified Last-Modified, полученный при предыдущем запросе страницы; null - не используется
+     * @return CompletableFuture, завершающийся полученной страницей
+     */
+    CompletableFuture<FetchedPage> fetch(String url, String userAgent, String referrer,
+                                         String etag, String lastModified);
+}
@@ -2,16 +2,28 @@ package searchengine.services;
 
 import searchengine.model.Page;
 
+import java.util.List;
+
 /**
  * интерфейс, использующийся для индексации страниц и сохранения информации о леммах и индксах
  */
 public interface PageIndexingService {
     /**
-     * запуск индексации страницы
+     * извлечение заголовка и текста страницы и вычисление лемм страницы и их рангов
+     * обращений к БД не выполняется
      *
      * @param page - экземпляр класса Page, который необходимо проиндексировать
+     * @return страница, подготовленная к сохранению индекса
+     */
+    LemmatizedPage lemmatizePage(Page page);
+
+    /**
+     * сохранение лемм и индексов сохранённых в БД страниц одного сайта
+     *
+     * @param lemmatizedPages страницы, подготовленные к сохранению индекса
+     * @param bulkLoad        true - индексы загружаются в БД командой LOAD DATA (полная индексация сайта)
      */
-    void indexPage(Page page);
+    void saveLemmatizedPages(List<LemmatizedPage> lemmatizedPages, boolean bulkLoad);
 
     /**
      * удаление / обновление информации при обновлении отдельной страницы
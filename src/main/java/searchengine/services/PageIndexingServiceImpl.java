@@ -1,12 +1,12 @@
 package searchengine.services;
 
+import lombok.extern.log4j.Log4j2;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Service;
 import searchengine.config.Config;
-import searchengine.model.Lemma;
 import searchengine.model.Page;
 import searchengine.model.SearchIndex;
 
@@ -18,7 +18,11 @@ import java.util.stream.Collectors;
  */
 @Service
 @Scope("prototype")
+@Log4j2
 class PageIndexingServiceImpl implements PageIndexingService {
+    // способ записи индексов при массовой загрузке, выводится в лог
+    private static final String BULK_LOAD_WRITE_MODE = "load";
+
     private final LemmasProcessingService lemmasProcessingService;
 
     private final LemmaService lemmaService;
@@ -27,38 +31,91 @@ class PageIndexingServiceImpl implements PageIndexingService {
 
     private final Config config;
 
+    private final SearchIndexGeneration searchIndexGeneration;
+
+    private final InMemorySearchIndex inMemorySearchIndex;
+
+    // массовая загрузка индексов отключена после ошибки: до конца индексации сайта индексы сохраняются запросами INSERT
+    private volatile boolean bulkLoadFailed = false;
+
     @Autowired
     public PageIndexingServiceImpl(LemmasProcessingService lemmasProcessingService, LemmaService lemmaService,
-                                   SearchIndexService searchIndexService, Config config) {
+                                   SearchIndexService searchIndexService, Config config,
+                                   SearchIndexGeneration searchIndexGeneration, InMemorySearchIndex inMemorySearchIndex) {
         this.lemmasProcessingService = lemmasProcessingService;
         this.lemmaService = lemmaService;
         this.searchIndexService = searchIndexService;
         this.config = config;
+        this.searchIndexGeneration = searchIndexGeneration;
+        this.inMemorySearchIndex = inMemorySearchIndex;
     }
 
     /**
-     * запуск индексации страницы
+     * извлечение заголовка и текста страницы и вычисление лемм страницы и их рангов
+     * заголовок и текст сохраняются в объекте страницы, чтобы при выводе результатов поиска не разбирать HTML код повторно;
+     * если они уже извлечены при разборе страницы, HTML код повторно не разбирается
      *
      * @param page - экземпляр класса Page, который необходимо проиндексировать
+     * @return страница, подготовленная к сохранению индекса
      */
     @Override
-    public void indexPage(Page page) {
-        Map<String, Integer> rankedPageLemmasMap;
+    public LemmatizedPage lemmatizePage(Page page) {
+        if (page.getPageTitle() == null || page.getPageText() == null) {
+            Document htmlDocument = Jsoup.parse(page.getPageContent());
 
-        String content = page.getPageContent();
-        Document htmlDocument = Jsoup.parse(content);
-        int pageId = page.getId();
-        int siteId = page.getSiteId();
+            page.setPageTitle(PageTextExtractor.getTitle(htmlDocument));
+            page.setPageText(PageTextExtractor.getText(htmlDocument));
+        }
+
+        Map<String, Integer> rankedPageLemmasMap = createRankedPageLemmasMap(page.getPageTitle(), page.getPageText());
+
+        return new LemmatizedPage(page, rankedPageLemmasMap);
+    }
+
+    /**
+     * сохранение лемм и индексов сохранённых в БД страниц одного сайта
+     * количество страниц, на которых встречается каждая лемма, суммируется по всем страницам,
+     * поэтому каждая лемма записывается в БД один раз с увеличением частоты на это количество;
+     * леммы упорядочены, чтобы одновременные записи блокировали строки лемм в одном порядке
+     *
+     * @param lemmatizedPages страницы, подготовленные к сохранению индекса
+     * @param bulkLoad        true - индексы загружаются в БД командой LOAD DATA (полная индексация сайта)
+     */
+    @Override
+    public void saveLemmatizedPages(List<LemmatizedPage> lemmatizedPages, boolean bulkLoad) {
+        if (lemmatizedPages.isEmpty()) {
+            return;
+        }
+
+        // Profiling
+        long start = System.currentTimeMillis();
+
+        int siteId = lemmatizedPages.get(0).getPage().getSiteId();
+        Map<String, Integer> lemmaPagesQty = new TreeMap<>();
+
+        for (LemmatizedPage lemmatizedPage : lemmatizedPages) {
+            for (String lemma : lemmatizedPage.getRankedPageLemmasMap().keySet()) {
+                lemmaPagesQty.merge(lemma, 1, Integer::sum);
+            }
+        }
 
-        rankedPageLemmasMap = createRankedPageLemmasMap(htmlDocument);
+        Map<String, Integer> lemmasMap = lemmaService.saveLemmaFrequencies(lemmaPagesQty, siteId);
+
+        // Profiling
+        long lemmasSaved = System.currentTimeMillis();
+        System.out.println("Site #" + siteId + ": " + lemmaPagesQty.size() + " lemmas of " + lemmatizedPages.size()
+                + " pages saved " + (lemmasSaved - start) + " ms");
 
-        saveLemmasAndIndex(rankedPageLemmasMap, pageId, siteId);
+        saveIndexes(lemmatizedPages, lemmasMap, siteId, bulkLoad);
+
+        searchIndexGeneration.increment(siteId);
     }
 
     /**
      * удаление / обновление информации при обновлении отдельной страницы
      * поиск и удаление объектов SearchIndex по pageId;
-     * поиск лемм по объектам SearchIndex
+     * поиск лемм по объектам SearchIndex и уменьшение их частоты (леммы, не встречающиеся на других страницах,
+     * удаляются)
      *
      * @param page страница
      */
@@ -70,9 +127,13 @@ class PageIndexingServiceImpl implements PageIndexingService {
 
         List<Integer> lemmasId = pageSearchIndexes.stream().map(SearchIndex::getLemmaId).collect(Collectors.toList());
 
-        modifyOrRemoveLemmas(lemmasId);
+        lemmaService.decreaseFrequencies(lemmasId, page.getSiteId());
 
         searchIndexService.deleteByPageId(pageId);
+
+        inMemorySearchIndex.removePage(pageId, lemmasId);
+
+        searchIndexGeneration.increment(page.getSiteId());
     }
 
     /**
@@ -84,58 +145,23 @@ class PageIndexingServiceImpl implements PageIndexingService {
     public void removeSiteIndexData(int siteId) {
         searchIndexService.deleteBySiteId(siteId);
         lemmaService.deleteBySiteId(siteId);
-    }
-
-    /**
-     * обновление / удаление лемм:
-     * если частота встречаемости леммы равна 1, то лемма удаляется из базы данных;
-     * если частота встречаемости леммы больше 1, то значение частоты уменьшается на 1
-     *
-     * @param lemmasId список id лемм, встречающихся на обновляемой странице
-     */
-    private void modifyOrRemoveLemmas(List<Integer> lemmasId) {
-        int bufferSize = config.getLemmaBufferSize();
-        List<Lemma> lemmasBuffer = new ArrayList<>();
-        int lemmasCounter = 0;
-
-        Iterable<Lemma> affectedLemmas = lemmaService.findAllById(lemmasId);
-
-        if (affectedLemmas == null) {
-            return;
-        }
 
-        for (Lemma curLemma : affectedLemmas) {
-            int frequency = curLemma.getFrequency();
+        inMemorySearchIndex.removeSite(siteId);
 
-            if (frequency == 1) {
-                lemmaService.delete(curLemma);
-            } else {
-                curLemma.setFrequency(--frequency);
-                lemmasBuffer.add(curLemma);
-                ++lemmasCounter;
-            }
-            if (lemmasCounter >= bufferSize) {
-                lemmaService.saveAll(lemmasBuffer);
-                lemmasBuffer.clear();
-                lemmasCounter = 0;
-            }
-        }
-        lemmaService.saveAll(lemmasBuffer);
-        lemmasBuffer.clear();
+        searchIndexGeneration.increment(siteId);
     }
 
     /**
      * создание Map, содержащего леммы, встречающиеся на странице и их ранги
      *
-     * @param htmlDocument
+     * @param pageTitle заголовок страницы
+     * @param pageText  текст страницы без HTML разметки
      * @return Map, содержащий леммы, встречающиеся на странице и их ранги
      */
-    private Map<String, Integer> createRankedPageLemmasMap(Document htmlDocument) {
+    private Map<String, Integer> createRankedPageLemmasMap(String pageTitle, String pageText) {
         Map<String, Integer> rankedPageLemmasMap = new HashMap<>();
 
-        List<String> currentHtmlElementsTexts = htmlDocument.select("title, body").eachText();
-
-        for (String htmlElementText : currentHtmlElementsTexts) {
+        for (String htmlElementText : List.of(pageTitle, pageText)) {
             Map<String, Integer> lemmasMap = lemmasProcessingService.getTextLemmasWithFreq(htmlElementText);
 
             for (Map.Entry<String, Integer> lemmaEntry : lemmasMap.entrySet()) {
@@ -169,40 +195,73 @@ class PageIndexingServiceImpl implements PageIndexingService {
     }
 
     /**
-     * сохранение в БД лемм и индексов страниц
+     * сохранение в БД индексов страниц одним пакетом и добавление их в поисковый индекс в памяти
+     * при массовой загрузке пакет загружается командой LOAD DATA; если загрузка не удалась (например, на сервере БД
+     * отключён local_infile), пакет сохраняется запросами INSERT
+     * ошибка сохранения передаётся вызывающему методу: страницы, индексы которых не сохранены,
+     * не должны отмечаться пройденными в журнале обхода
      *
-     * @param rankedPageLemmasMap Map, содержащий леммы, встречающиеся на странице и их ранги
-     * @param pageId              ID страницы
+     * @param lemmatizedPages страницы, подготовленные к сохранению индекса
+     * @param lemmasMap       Map: key = значение леммы, value = id леммы в БД
+     * @param siteId          ID сайта
+     * @param bulkLoad        true - индексы загружаются в БД командой LOAD DATA
      */
-    private void saveLemmasAndIndex(Map<String, Integer> rankedPageLemmasMap, int pageId, int siteId) {
+    private void saveIndexes(List<LemmatizedPage> lemmatizedPages, Map<String, Integer> lemmasMap, int siteId,
+                             boolean bulkLoad) {
         // Profiling
         long start = System.currentTimeMillis();
-        Set<SearchIndex> searchIndexSet = new HashSet<>();
 
-        Map<String, Integer> lemmasMap = lemmaService.
-                getLemmasByStrings(rankedPageLemmasMap.keySet(), siteId);
+        List<SearchIndex> searchIndexes = new ArrayList<>();
 
-        try {
+        for (LemmatizedPage lemmatizedPage : lemmatizedPages) {
+            int pageId = lemmatizedPage.getPage().getId();
 
-            // Profiling
-            long lemmasSaved = System.currentTimeMillis();
-            System.out.println("page " + pageId + " lemmas saved " + (lemmasSaved - start) + " ms");
+            for (Map.Entry<String, Integer> rankEntry : lemmatizedPage.getRankedPageLemmasMap().entrySet()) {
+                Integer lemmaId = lemmasMap.get(rankEntry.getKey());
 
+                if (lemmaId != null) {
+                    searchIndexes.add(new SearchIndex(pageId, lemmaId, rankEntry.getValue()));
+                }
+            }
+        }
 
-            // Profiling
-            long indexPrepared = System.currentTimeMillis();
+        String writeMode = config.getIndexWriteMode();
 
-            searchIndexService.saveIndexes(lemmasMap, rankedPageLemmasMap, pageId);
+        if (bulkLoad && !bulkLoadFailed) {
+            writeMode = loadIndexes(searchIndexes, siteId);
+        } else {
+            searchIndexService.insertIndexes(searchIndexes);
+        }
 
-            // Profiling
-            long indexSaved = System.currentTimeMillis();
-            System.out.println("page " + pageId + " index saved " + (indexSaved - indexPrepared) + " ms");
+        for (LemmatizedPage lemmatizedPage : lemmatizedPages) {
+            inMemorySearchIndex.addPage(siteId, lemmatizedPage.getPage().getId(), lemmasMap,
+                    lemmatizedPage.getRankedPageLemmasMap());
+        }
+
+        // Profiling
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+        System.out.println("Site #" + siteId + ": " + searchIndexes.size() + " index rows saved (" + writeMode
+                + ") " + elapsed + " ms, " + searchIndexes.size() * 1000L / elapsed + " rows/s");
+    }
 
+    /**
+     * массовая загрузка индексов в БД; при ошибке загрузки индексы сохраняются запросами INSERT,
+     * а массовая загрузка отключается до конца индексации сайта
+     *
+     * @param searchIndexes индексы страниц
+     * @param siteId        ID сайта
+     * @return способ, которым индексы сохранены в БД
+     */
+    private String loadIndexes(List<SearchIndex> searchIndexes, int siteId) {
+        try {
+            searchIndexService.loadIndexes(searchIndexes);
+            return BULK_LOAD_WRITE_MODE;
         } catch (Exception e) {
-            System.out.println(e.getMessage() + " on page ID = " + pageId);
-            return;
+            bulkLoadFailed = true;
+            log.warn("Ошибка массовой загрузки индексов сайта ID = " + siteId
+                    + ", до конца индексации сайта индексы сохраняются запросами INSERT", e);
+            searchIndexService.insertIndexes(searchIndexes);
+            return config.getIndexWriteMode();
         }
-
-        System.out.println("Indexes saved for page ID = " + pageId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package searchengine.services;
+
+/**
+ * страницы сайта, содержащие все обработанные леммы запроса, и их абсолютные релевантности
+ * id страниц хранятся по возрастанию, что позволяет пересекать их со списками вхождений лемм без создания объектов
+ */
+final class PageScores {
+    static final PageScores EMPTY = new PageScores(new int[0], new float[0], 0);
+
+    private final int[] pageIds;    // id страниц по возрастанию
+    private final float[] scores;   // абсолютные релевантности страниц
+    private int size;               // количество страниц
+
+    private PageScores(int[] pageIds, float[] scores, int size) {
+        this.pageIds = pageIds;
+        this.scores = scores;
+        this.size = size;
+    }
+
+    /**
+     * создание результата для первой (самой редкой) леммы запроса
+     *
+     * @param postings список вхождений леммы
+     * @return страницы, содержащие лемму, и ранги леммы на них
+     */
+    static PageScores of(PostingList postings) {
+        int size = postings.size();
+        int[] pageIds = new int[size];
+        float[] scores = new float[size];
+
+        for (int i = 0; i < size; i++) {
+            pageIds[i] = postings.getPageId(i);
+            scores[i] = postings.getRank(i);
+        }
+
+        return new PageScores(pageIds, scores, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPageId(int i) {
+        return pageIds[i];
+    }
+
+    public float getScore(int i) {
+        return scores[i];
+    }
+
+    /**
+     * пересечение со списком вхождений очередной леммы: остаются только страницы, содержащие лемму,
+     * их релевантности увеличиваются на ранг леммы
+     * обход выполняется по меньшему из списков, позиция в большем ищется экспоненциальным (galloping) поиском,
+     * поэтому при сильно различающихся размерах списков стоимость пропорциональна размеру меньшего из них
+     *
+     * @param postings список вхождений леммы
+     */
+    public void intersect(PostingList postings) {
+        int postingsSize = postings.size();
+        int newSize = 0;
+
+        if (size <= postingsSize) {
+            int pos = 0;
+            for (int i = 0; i < size && pos < postingsSize; i++) {
+                int pageId = pageIds[i];
+                pos = gallop(postings, pos, postingsSize, pageId);
+                if (pos < postingsSize && postings.getPageId(pos) == pageId) {
+                    pageIds[newSize] = pageId;
+                    scores[newSize] = scores[i] + postings.getRank(pos);
+                    ++newSize;
+                    ++pos;
+                }
+            }
+        } else {
+            int pos = 0;
+            for (int i = 0; i < postingsSize && pos < size; i++) {
+                int pageId = postings.getPageId(i);
+                pos = gallop(pos, pageId);
+                if (pos < size && pageIds[pos] == pageId) {
+                    pageIds[newSize] = pageId;
+                    scores[newSize] = scores[pos] + postings.getRank(i);
+                    ++newSize;
+                    ++pos;
+                }
+            }
+        }
+
+        size = newSize;
+    }
+
+    /**
+     * поиск в списке вхождений первой позиции, id страницы на которой не меньше заданного
+     *
+     * @param postings список вхождений
+     * @param from     позиция, с которой начинается поиск
+     * @param to       размер списка
+     * @param pageId   id страницы
+     * @return найденная позиция, либо to, если все id страниц меньше заданного
+     */
+    private static int gallop(PostingList postings, int from, int to, int pageId) {
+        int step = 1;
+        int low = from;
+        int high = from;
+
+        while (high < to && postings.getPageId(high) < pageId) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (postings.getPageId(mid) < pageId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * поиск в текущем списке страниц первой позиции, id страницы на которой не меньше заданного
+     * запись в массивы при пересечении выполняется только в уже пройденные позиции, поэтому поиск от from корректен
+     *
+     * @param from   позиция, с которой начинается поиск
+     * @param pageId id страницы
+     * @return найденная позиция, либо size, если все id страниц меньше заданного
+     */
+    private int gallop(int from, int pageId) {
+        int step = 1;
+        int low = from;
+        int high = from;
+
+        while (high < size && pageIds[high] < pageId) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, size);
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pageIds[mid] < pageId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+}
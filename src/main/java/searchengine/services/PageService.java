@@ -2,6 +2,7 @@ package searchengine.services;
 
 import searchengine.model.Page;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -63,4 +64,85 @@ public interface PageService {
      * @return перечень найденных страниц
      */
     Iterable<Page> findAllById(Iterable<Integer> ids);
+
+    /**
+     * сохранение заголовка и текста страницы, извлечённых при индексации
+     *
+     * @param pageId    id страницы
+     * @param pageTitle заголовок страницы
+     * @param pageText  текст страницы без HTML разметки
+     */
+    void updateTextData(int pageId, String pageTitle, String pageText);
+
+    /**
+     * получение данных страниц, необходимых для вывода результатов поиска, без загрузки HTML кода
+     *
+     * @param ids перечень ID страниц
+     * @return список массивов: id страницы, ссылка на страницу, заголовок, текст
+     */
+    List<Object[]> findSearchDataByIds(Collection<Integer> ids);
+
+    /**
+     * получение сохранённых данных для повторной индексации страниц сайта
+     *
+     * @param siteId id сайта
+     * @return список массивов: id страницы, ссылка на страницу, код ответа, ETag, Last-Modified, хэш контента
+     */
+    List<Object[]> findValidatorsBySiteId(int siteId);
+
+    /**
+     * сохранение заголовков ETag и Last-Modified страницы
+     *
+     * @param pageId       id страницы
+     * @param etag         заголовок ETag
+     * @param lastModified заголовок Last-Modified
+     */
+    void updateValidators(int pageId, String etag, String lastModified);
+
+    /**
+     * удаление страниц по перечню ID
+     *
+     * @param ids перечень ID страниц
+     */
+    void deleteByIds(Collection<Integer> ids);
+
+    /**
+     * получение SimHash проиндексированных страниц сайта (кроме страниц, сохранённых как почти одинаковые)
+     *
+     * @param siteId id сайта
+     * @return список массивов: id страницы, SimHash текста
+     */
+    List<Object[]> findSimHashesBySiteId(int siteId);
+
+    /**
+     * сохранение страницы как почти одинаковой с другой страницей сайта
+     *
+     * @param pageId  id страницы
+     * @param aliasOf id почти одинаковой проиндексированной страницы
+     */
+    void updateAliasOf(int pageId, int aliasOf);
+
+    /**
+     * удаление страниц, сохранённых как почти одинаковые со страницами из перечня
+     *
+     * @param ids перечень ID проиндексированных страниц
+     */
+    void deleteAliasesOf(Collection<Integer> ids);
+
+    /**
+     * получение ссылок на страницы сайта, сохранённые в БД
+     *
+     * @param siteId id сайта
+     * @return ссылки на страницы от корня сайта
+     */
+    List<String> findPathsBySiteId(int siteId);
+
+    /**
+     * получение id страниц сайта по перечню ссылок
+     *
+     * @param siteId id сайта
+     * @param paths  ссылки на страницы от корня сайта
+     * @return перечень id страниц, сохранённых в БД
+     */
+    List<Integer> findIdsByPaths(int siteId, Collection<String> paths);
 }
@@ -6,6 +6,7 @@ import searchengine.model.Page;
 import searchengine.repository.PageNonStandardRepository;
 import searchengine.repository.PageRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -60,4 +61,54 @@ class PageServiceImpl implements PageService {
     public Iterable<Page> findAllById(Iterable<Integer> ids) {
         return pageRepository.findAllById(ids);
     }
+
+    @Override
+    public void updateTextData(int pageId, String pageTitle, String pageText) {
+        pageNonStandardRepository.updateTextData(pageId, pageTitle, pageText);
+    }
+
+    @Override
+    public List<Object[]> findSearchDataByIds(Collection<Integer> ids) {
+        return pageNonStandardRepository.findSearchDataByIds(ids);
+    }
+
+    @Override
+    public List<Object[]> findValidatorsBySiteId(int siteId) {
+        return pageNonStandardRepository.findValidatorsBySiteId(siteId);
+    }
+
+    @Override
+    public void updateValidators(int pageId, String etag, String lastModified) {
+        pageNonStandardRepository.updateValidators(pageId, etag, lastModified);
+    }
+
+    @Override
+    public void deleteByIds(Collection<Integer> ids) {
+        pageNonStandardRepository.deleteByIds(ids);
+    }
+
+    @Override
+    public List<Object[]> findSimHashesBySiteId(int siteId) {
+        return pageNonStandardRepository.findSimHashesBySiteId(siteId);
+    }
+
+    @Override
+    public void updateAliasOf(int pageId, int aliasOf) {
+        pageNonStandardRepository.updateAliasOf(pageId, aliasOf);
+    }
+
+    @Override
+    public void deleteAliasesOf(Collection<Integer> ids) {
+        pageNonStandardRepository.deleteAliasesOf(ids);
+    }
+
+    @Override
+    public List<String> findPathsBySiteId(int siteId) {
+        return pageNonStandardRepository.findPathsBySiteId(siteId);
+    }
+
+    @Override
+    public List<Integer> findIdsByPaths(int siteId, Collection<String> paths) {
+        return pageNonStandardRepository.findIdsByPaths(siteId, paths);
+    }
 }
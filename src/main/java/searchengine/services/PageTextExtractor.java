@@ -0,0 +1,36 @@
+package searchengine.services;
+
+import org.jsoup.nodes.Document;
+
+import java.util.List;
+
+/**
+ * извлечение заголовка и текста страницы из HTML документа
+ * используется при индексации страниц; при выводе результатов поиска - только для страниц, проиндексированных до появления колонок title и text
+ */
+final class PageTextExtractor {
+
+    private PageTextExtractor() {
+    }
+
+    /**
+     * получение заголовка страницы
+     *
+     * @param htmlDocument HTML документ страницы
+     * @return текст первого тега title; пустая строка, если заголовок отсутствует
+     */
+    static String getTitle(Document htmlDocument) {
+        List<String> titles = htmlDocument.select("title").eachText();
+        return (titles.size() == 0) ? "" : titles.get(0);
+    }
+
+    /**
+     * получение текста страницы без HTML разметки
+     *
+     * @param htmlDocument HTML документ страницы
+     * @return текст тегов body, разделённый пробелами
+     */
+    static String getText(Document htmlDocument) {
+        return String.join(" ", htmlDocument.select("body").eachText());
+    }
+}
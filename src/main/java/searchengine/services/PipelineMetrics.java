@@ -0,0 +1,62 @@
+package searchengine.services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * счётчики этапа конвейера индексации: количество обработанных страниц, суммарное время работы потоков этапа
+ * и суммарное время ожидания места в очереди следующего этапа
+ * пропускная способность считается от момента создания счётчиков
+ */
+final class PipelineMetrics {
+    private final String stageName;                          // название этапа
+    private final long createdNanos = System.nanoTime();     // время создания счётчиков, нс
+    private final LongAdder pagesQty = new LongAdder();      // количество обработанных страниц
+    private final LongAdder busyNanos = new LongAdder();     // время работы потоков этапа, нс
+    private final LongAdder waitNanos = new LongAdder();     // время ожидания места в очереди следующего этапа, нс
+
+    PipelineMetrics(String stageName) {
+        this.stageName = stageName;
+    }
+
+    /**
+     * учёт обработанных страниц
+     *
+     * @param startNanos время начала обработки (System.nanoTime)
+     * @param pagesQty   количество обработанных страниц
+     */
+    void record(long startNanos, int pagesQty) {
+        this.busyNanos.add(System.nanoTime() - startNanos);
+        this.pagesQty.add(pagesQty);
+    }
+
+    /**
+     * учёт ожидания места в очереди следующего этапа
+     *
+     * @param nanos время ожидания, нс
+     */
+    void addWait(long nanos) {
+        waitNanos.add(nanos);
+    }
+
+    long getPagesQty() {
+        return pagesQty.sum();
+    }
+
+    /**
+     * получение пропускной способности этапа
+     *
+     * @return количество страниц в секунду
+     */
+    double getPagesPerSecond() {
+        long elapsedNanos = Math.max(System.nanoTime() - createdNanos, 1);
+        return pagesQty.sum() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d pages, %.1f pages/s, busy %d ms, waited %d ms", stageName, getPagesQty(),
+                getPagesPerSecond(), TimeUnit.NANOSECONDS.toMillis(busyNanos.sum()),
+                TimeUnit.NANOSECONDS.toMillis(waitNanos.sum()));
+    }
+}
@@ -0,0 +1,165 @@
+package searchengine.services;
+
+import searchengine.model.SearchIndex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * неизменяемый список вхождений леммы: id страниц, упорядоченные по возрастанию, и ранги леммы на этих страницах
+ * массивы могут быть длиннее, чем size: элементы за пределами size не относятся к данному списку
+ */
+public final class PostingList {
+    static final PostingList EMPTY = new PostingList(new int[0], new float[0], 0, -1);
+
+    private final int[] pageIds;    // id страниц по возрастанию
+    private final float[] ranks;    // ранги леммы на страницах
+    private final int size;         // количество вхождений
+    private final int siteId;       // id сайта, к которому относится лемма
+
+    PostingList(int[] pageIds, float[] ranks, int size, int siteId) {
+        this.pageIds = pageIds;
+        this.ranks = ranks;
+        this.size = size;
+        this.siteId = siteId;
+    }
+
+    /**
+     * создание списка вхождений из объектов SearchIndex
+     *
+     * @param searchIndexes объекты SearchIndex, относящиеся к одной лемме
+     * @return список вхождений, упорядоченный по id страниц
+     */
+    static PostingList of(List<SearchIndex> searchIndexes) {
+        int size = searchIndexes.size();
+        int[] pageIds = new int[size];
+        float[] ranks = new float[size];
+
+        for (int i = 0; i < size; i++) {
+            SearchIndex searchIndex = searchIndexes.get(i);
+            pageIds[i] = searchIndex.getPageId();
+            ranks[i] = searchIndex.getRank();
+        }
+
+        return sorted(pageIds, ranks, size, -1);
+    }
+
+    /**
+     * создание списка вхождений из неупорядоченных массивов
+     *
+     * @param pageIds id страниц
+     * @param ranks   ранги леммы на страницах
+     * @param size    количество вхождений
+     * @param siteId  id сайта, к которому относится лемма
+     * @return список вхождений, упорядоченный по id страниц
+     */
+    static PostingList sorted(int[] pageIds, float[] ranks, int size, int siteId) {
+        long[] packed = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            packed[i] = ((long) pageIds[i] << 32) | i;
+        }
+        Arrays.sort(packed);
+
+        int[] sortedPageIds = new int[size];
+        float[] sortedRanks = new float[size];
+
+        for (int i = 0; i < size; i++) {
+            int pos = (int) packed[i];
+            sortedPageIds[i] = pageIds[pos];
+            sortedRanks[i] = ranks[pos];
+        }
+
+        return new PostingList(sortedPageIds, sortedRanks, size, siteId);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPageId(int i) {
+        return pageIds[i];
+    }
+
+    public float getRank(int i) {
+        return ranks[i];
+    }
+
+    public int getSiteId() {
+        return siteId;
+    }
+
+    /**
+     * поиск позиции страницы в списке
+     *
+     * @param pageId id страницы
+     * @return позиция страницы, либо отрицательное значение (-(точка вставки) - 1), если страница отсутствует
+     */
+    public int indexOf(int pageId) {
+        return Arrays.binarySearch(pageIds, 0, size, pageId);
+    }
+
+    /**
+     * добавление или обновление вхождения
+     * если страница больше всех имеющихся и в массивах есть место, массивы используются повторно:
+     * текущий экземпляр при этом не меняется, так как не видит элементов за пределами своего size
+     *
+     * @param pageId id страницы
+     * @param rank   ранг леммы на странице
+     * @return новый список вхождений
+     */
+    PostingList with(int pageId, float rank) {
+        int pos = indexOf(pageId);
+
+        if (pos >= 0) {
+            float[] newRanks = Arrays.copyOf(ranks, size);
+            newRanks[pos] = rank;
+            return new PostingList(Arrays.copyOf(pageIds, size), newRanks, size, siteId);
+        }
+
+        int insertPos = -pos - 1;
+
+        if (insertPos == size && size < pageIds.length) {
+            pageIds[size] = pageId;
+            ranks[size] = rank;
+            return new PostingList(pageIds, ranks, size + 1, siteId);
+        }
+
+        int capacity = Math.max(4, size + (size >> 1) + 1);
+        int[] newPageIds = new int[capacity];
+        float[] newRanks = new float[capacity];
+
+        System.arraycopy(pageIds, 0, newPageIds, 0, insertPos);
+        System.arraycopy(ranks, 0, newRanks, 0, insertPos);
+        newPageIds[insertPos] = pageId;
+        newRanks[insertPos] = rank;
+        System.arraycopy(pageIds, insertPos, newPageIds, insertPos + 1, size - insertPos);
+        System.arraycopy(ranks, insertPos, newRanks, insertPos + 1, size - insertPos);
+
+        return new PostingList(newPageIds, newRanks, size + 1, siteId);
+    }
+
+    /**
+     * удаление вхождения
+     *
+     * @param pageId id страницы
+     * @return новый список вхождений; текущий экземпляр, если страница отсутствует
+     */
+    PostingList without(int pageId) {
+        int pos = indexOf(pageId);
+
+        if (pos < 0) {
+            return this;
+        }
+
+        int[] newPageIds = new int[size - 1];
+        float[] newRanks = new float[size - 1];
+
+        System.arraycopy(pageIds, 0, newPageIds, 0, pos);
+        System.arraycopy(ranks, 0, newRanks, 0, pos);
+        System.arraycopy(pageIds, pos + 1, newPageIds, pos, size - pos - 1);
+        System.arraycopy(ranks, pos + 1, newRanks, pos, size - pos - 1);
+
+        return new PostingList(newPageIds, newRanks, size - 1, siteId);
+    }
+}
@@ -0,0 +1,185 @@
+package searchengine.services;
+
+import searchengine.model.Site;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * результат поискового запроса, упорядочиваемый по релевантности по мере необходимости
+ * хранится в кэше результатов поиска и используется для постраничного вывода без повторного поиска
+ * при первом обращении отбираются только (offset + limit) самых релевантных страниц с помощью кучи;
+ * полная сортировка выполняется, только если запрошена страница вывода за пределами уже упорядоченной части
+ */
+final class RankedSearchResult {
+    private final int[] pageIds;            // id найденных страниц в порядке добавления
+    private final float[] absRelevances;    // абсолютные релевантности страниц
+    private final Site[] sites;             // сайты, к которым относятся страницы
+    private final int totalQty;             // общее количество найденных страниц
+    private final float maxRelevance;       // максимальная абсолютная релевантность
+    private final boolean complete;         // получены ли результаты по всем сайтам
+    private int[] rankedPositions = new int[0]; // позиции страниц в порядке убывания релевантности (упорядоченная часть)
+
+    /**
+     * конструктор класса
+     *
+     * @param pageIds       id найденных страниц в порядке добавления
+     * @param absRelevances абсолютные релевантности страниц
+     * @param sites         сайты, к которым относятся страницы
+     * @param totalQty      общее количество найденных страниц
+     * @param maxRelevance  максимальная абсолютная релевантность
+     * @param complete      получены ли результаты по всем сайтам
+     */
+    RankedSearchResult(int[] pageIds, float[] absRelevances, Site[] sites, int totalQty, float maxRelevance,
+                       boolean complete) {
+        this.pageIds = pageIds;
+        this.absRelevances = absRelevances;
+        this.sites = sites;
+        this.totalQty = totalQty;
+        this.maxRelevance = maxRelevance;
+        this.complete = complete;
+    }
+
+    /**
+     * получение общего количества найденных страниц
+     *
+     * @return количество найденных страниц
+     */
+    public int getTotalQty() {
+        return totalQty;
+    }
+
+    /**
+     * проверка полноты результата
+     *
+     * @return true, если результат содержит страницы всех сайтов; false, если поиск по части сайтов не завершился вовремя
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * создание объектов SearchResultProcessor для одной страницы вывода результатов
+     *
+     * @param outputOffset    количество результатов, которые необходимо пропустить
+     * @param resultsQtyLimit количество результатов на одной странице
+     * @return список объектов SearchResultProcessor для отображения на текущей странице
+     */
+    public List<SearchResultProcessor> slice(int outputOffset, int resultsQtyLimit) {
+        int lowerBoundary = Math.min(Math.max(outputOffset, 0), totalQty);
+        int upperBoundary = (int) Math.min((long) lowerBoundary + Math.max(resultsQtyLimit, 0), totalQty);
+
+        int[] positions = getRankedPositions(upperBoundary);
+
+        List<SearchResultProcessor> searchResultList = new ArrayList<>(upperBoundary - lowerBoundary);
+
+        for (int i = lowerBoundary; i < upperBoundary; i++) {
+            int pos = positions[i];
+            SearchResultProcessor searchResultProcessor = new SearchResultProcessor(sites[pos], pageIds[pos]);
+            searchResultProcessor.setRelRelevance(absRelevances[pos] / maxRelevance);
+            searchResultList.add(searchResultProcessor);
+        }
+
+        return searchResultList;
+    }
+
+    /**
+     * получение упорядоченной части результата, содержащей не менее заданного количества страниц
+     * первое упорядочивание выполняется отбором top-K, последующие (при запросе более глубоких страниц вывода) - полной сортировкой
+     *
+     * @param rankedQty необходимое количество упорядоченных страниц
+     * @return позиции страниц в порядке убывания релевантности
+     */
+    private synchronized int[] getRankedPositions(int rankedQty) {
+        if (rankedQty <= rankedPositions.length) {
+            return rankedPositions;
+        }
+
+        long[] packed = (rankedPositions.length == 0) ? selectTop(rankedQty) : selectAll();
+
+        int[] positions = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            positions[i] = Integer.MAX_VALUE - (int) packed[packed.length - 1 - i];
+        }
+        rankedPositions = positions;
+
+        return rankedPositions;
+    }
+
+    /**
+     * упаковка релевантности и позиции страницы в одно число для сравнения
+     * релевантности неотрицательны, поэтому порядок битовых представлений float совпадает с порядком значений;
+     * при равной релевантности выше оказывается страница, добавленная раньше
+     *
+     * @param pos позиция страницы
+     * @return упакованное значение
+     */
+    private long pack(int pos) {
+        return ((long) Float.floatToIntBits(absRelevances[pos]) << 32) | (Integer.MAX_VALUE - pos);
+    }
+
+    /**
+     * отбор k самых релевантных страниц с помощью кучи (min-heap) размера k
+     *
+     * @param k количество отбираемых страниц
+     * @return упакованные значения отобранных страниц по возрастанию
+     */
+    private long[] selectTop(int k) {
+        long[] heap = new long[k];
+        int heapSize = 0;
+
+        for (int pos = 0; pos < totalQty; pos++) {
+            long value = pack(pos);
+
+            if (heapSize < k) {
+                int i = heapSize++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (heap[parent] <= value) {
+                        break;
+                    }
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = value;
+            } else if (value > heap[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= k) {
+                        break;
+                    }
+                    if (child + 1 < k && heap[child + 1] < heap[child]) {
+                        ++child;
+                    }
+                    if (heap[child] >= value) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = value;
+            }
+        }
+        Arrays.sort(heap);
+
+        return heap;
+    }
+
+    /**
+     * полная сортировка всех найденных страниц
+     *
+     * @return упакованные значения всех страниц по возрастанию
+     */
+    private long[] selectAll() {
+        long[] packed = new long[totalQty];
+
+        for (int pos = 0; pos < totalQty; pos++) {
+            packed[pos] = pack(pos);
+        }
+        Arrays.sort(packed);
+
+        return packed;
+    }
+}
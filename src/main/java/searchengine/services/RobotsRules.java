@@ -0,0 +1,283 @@
+package searchengine.services;
+
+import lombok.extern.log4j.Log4j2;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * правила обхода сайта из файла robots.txt
+ * используется группа правил, user-agent которой содержится в user agent поискового робота (самая длинная из подходящих),
+ * либо группа "*"
+ * правила Allow / Disallow применяются к пути и параметрам запроса ссылки: действует правило с самым длинным шаблоном,
+ * при равной длине - Allow; в шаблонах поддерживаются "*" (любая последовательность символов) и "$" (конец ссылки)
+ * ссылки на карты сайта (Sitemap) не относятся к группам и собираются из всего файла
+ */
+@Log4j2
+final class RobotsRules {
+    static final RobotsRules EMPTY = new RobotsRules(0, List.of(), List.of());
+
+    private final double crawlDelay;    // минимальный интервал между запросами, с; 0, если не задан
+    private final List<Rule> rules;     // правила Allow / Disallow группы
+    private final List<String> sitemaps; // ссылки на карты сайта
+
+    private RobotsRules(double crawlDelay, List<Rule> rules, List<String> sitemaps) {
+        this.crawlDelay = crawlDelay;
+        this.rules = rules;
+        this.sitemaps = sitemaps;
+    }
+
+    public double getCrawlDelay() {
+        return crawlDelay;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    /**
+     * проверка, разрешён ли обход страницы
+     *
+     * @param url полная ссылка на страницу
+     * @return true, если обход разрешён, либо ссылка не может быть разобрана
+     */
+    public boolean isAllowed(String url) {
+        if (rules.isEmpty()) {
+            return true;
+        }
+
+        String path;
+        try {
+            URI uri = new URI(url);
+            path = (uri.getRawPath() == null || uri.getRawPath().isEmpty()) ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) {
+                path += "?" + uri.getRawQuery();
+            }
+        } catch (Exception ex) {
+            return true;
+        }
+
+        Rule bestRule = null;
+
+        for (Rule rule : rules) {
+            if ((bestRule == null || rule.pattern.length() > bestRule.pattern.length()
+                    || (rule.pattern.length() == bestRule.pattern.length() && rule.allow))
+                    && rule.matches(path)) {
+                bestRule = rule;
+            }
+        }
+
+        return bestRule == null || bestRule.allow;
+    }
+
+    /**
+     * загрузка и разбор robots.txt сайта
+     *
+     * @param rootUrl   ссылка на сайт без "/" в конце
+     * @param userAgent user agent поискового робота
+     * @return правила обхода сайта; пустые правила, если robots.txt отсутствует или не может быть получен
+     */
+    static RobotsRules load(String rootUrl, String userAgent) {
+        try {
+            Connection.Response response = Jsoup.connect(rootUrl + "/robots.txt").userAgent(userAgent)
+                    .ignoreContentType(true).ignoreHttpErrors(true).execute();
+
+            if (response.statusCode() != 200) {
+                return EMPTY;
+            }
+
+            return parse(response.body(), userAgent);
+        } catch (Exception ex) {
+            log.warn("Не удалось получить robots.txt сайта " + rootUrl + ": " + ex.getMessage());
+            return EMPTY;
+        }
+    }
+
+    /**
+     * разбор содержимого robots.txt
+     *
+     * @param content   содержимое robots.txt
+     * @param userAgent user agent поискового робота
+     * @return правила обхода сайта
+     */
+    static RobotsRules parse(String content, String userAgent) {
+        String robotName = (userAgent == null) ? "" : userAgent.toLowerCase(Locale.ROOT);
+
+        List<Group> groups = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+        Group group = null;             // текущая группа
+        boolean groupHasRules = false;  // встретились ли в текущей группе правила
+
+        for (String line : content.split("\r?\n|\r")) {
+            int commentPos = line.indexOf('#');
+            if (commentPos >= 0) {
+                line = line.substring(0, commentPos);
+            }
+            int colonPos = line.indexOf(':');
+            if (colonPos < 0) {
+                continue;
+            }
+
+            String field = line.substring(0, colonPos).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colonPos + 1).trim();
+
+            if (field.equals("sitemap")) {
+                if (!value.isEmpty()) {
+                    sitemaps.add(value);
+                }
+            } else if (field.equals("user-agent")) {
+                // несколько строк user-agent подряд относятся к одной группе
+                if (group == null || groupHasRules) {
+                    group = new Group();
+                    groups.add(group);
+                    groupHasRules = false;
+                }
+                group.agents.add(value.toLowerCase(Locale.ROOT));
+            } else if (group != null) {
+                groupHasRules = true;
+                if (field.equals("crawl-delay")) {
+                    group.crawlDelay = parseDelay(value);
+                } else if ((field.equals("allow") || field.equals("disallow")) && !value.isEmpty()) {
+                    // пустое значение Disallow означает отсутствие ограничений
+                    group.rules.add(new Rule(encodePattern(value), field.equals("allow")));
+                }
+            }
+        }
+
+        Group bestGroup = null;
+        int bestMatchLength = -1;
+
+        for (Group curGroup : groups) {
+            int matchLength = curGroup.matchLength(robotName);
+            if (matchLength > bestMatchLength) {
+                bestMatchLength = matchLength;
+                bestGroup = curGroup;
+            }
+        }
+
+        if (bestGroup == null) {
+            return new RobotsRules(0, List.of(), List.copyOf(sitemaps));
+        }
+        return new RobotsRules(bestGroup.crawlDelay, List.copyOf(bestGroup.rules), List.copyOf(sitemaps));
+    }
+
+    /**
+     * кодирование символов шаблона, не допустимых в ссылке (например, кириллицы), как в ссылках на страницы:
+     * байты UTF-8 в виде %XX
+     *
+     * @param pattern шаблон из robots.txt
+     * @return шаблон, сравнимый с путём ссылки
+     */
+    private static String encodePattern(String pattern) {
+        StringBuilder result = new StringBuilder(pattern.length());
+
+        for (byte b : pattern.getBytes(StandardCharsets.UTF_8)) {
+            int ch = b & 0xff;
+            if (ch > 0x20 && ch < 0x7f) {
+                result.append((char) ch);
+            } else {
+                result.append('%').append(Character.toUpperCase(Character.forDigit(ch >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(ch & 0xf, 16)));
+            }
+        }
+
+        return result.toString();
+    }
+
+    private static double parseDelay(String value) {
+        try {
+            return Math.max(Double.parseDouble(value), 0);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * группа правил robots.txt
+     */
+    private static final class Group {
+        private final List<String> agents = new ArrayList<>(); // user-agent группы в нижнем регистре
+        private final List<Rule> rules = new ArrayList<>();     // правила Allow / Disallow группы
+        private double crawlDelay = 0;                          // Crawl-delay группы, с
+
+        /**
+         * определение, насколько группа подходит поисковому роботу
+         *
+         * @param robotName user agent поискового робота в нижнем регистре
+         * @return длина совпавшего user-agent; 0 для группы "*"; -1, если группа не подходит
+         */
+        private int matchLength(String robotName) {
+            int result = -1;
+            for (String agent : agents) {
+                if (agent.equals("*")) {
+                    result = Math.max(result, 0);
+                } else if (!agent.isEmpty() && robotName.contains(agent)) {
+                    result = Math.max(result, agent.length());
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * правило Allow / Disallow
+     */
+    private static final class Rule {
+        private final String pattern;   // шаблон пути
+        private final boolean allow;    // true - Allow, false - Disallow
+
+        private Rule(String pattern, boolean allow) {
+            this.pattern = pattern;
+            this.allow = allow;
+        }
+
+        /**
+         * проверка, соответствует ли путь шаблону правила
+         * шаблон без "$" в конце сравнивается с началом пути
+         *
+         * @param path путь и параметры запроса ссылки
+         * @return true, если путь соответствует шаблону
+         */
+        private boolean matches(String path) {
+            boolean anchored = pattern.endsWith("$");
+            int patternEnd = anchored ? pattern.length() - 1 : pattern.length();
+
+            return matches(path, 0, 0, patternEnd, anchored);
+        }
+
+        private boolean matches(String path, int pathPos, int patternPos, int patternEnd, boolean anchored) {
+            while (patternPos < patternEnd) {
+                char ch = pattern.charAt(patternPos);
+
+                if (ch == '*') {
+                    // несколько "*" подряд равнозначны одной
+                    while (patternPos < patternEnd && pattern.charAt(patternPos) == '*') {
+                        ++patternPos;
+                    }
+                    if (patternPos == patternEnd) {
+                        return true;
+                    }
+                    for (int pos = pathPos; pos < path.length(); pos++) {
+                        if (matches(path, pos, patternPos, patternEnd, anchored)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
+                if (pathPos == path.length() || path.charAt(pathPos) != ch) {
+                    return false;
+                }
+                ++pathPos;
+                ++patternPos;
+            }
+
+            return !anchored || pathPos == path.length();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package searchengine.services;
+
+import lombok.Getter;
+import searchengine.model.Site;
+
+import java.util.*;
+
+/**
+ * неизменяемый контекст поискового запроса
+ * создаётся для каждого запроса пользователя и передаётся через все этапы поиска,
+ * что позволяет выполнять несколько поисковых запросов одновременно
+ */
+@Getter
+final class SearchContext {
+    private final String queryText;         // поисковый запрос
+    private final Set<String> lemmas;       // леммы из поискового запроса
+    private final List<Site> sites;         // сайты, по которым осуществляется поиск
+    private final int outputOffset;         // количество результатов, которые необходимо пропустить
+    private final int resultsQtyLimit;      // количество результатов на одной странице
+
+    /**
+     * конструктор класса
+     *
+     * @param queryText       поисковый запрос
+     * @param lemmas          леммы из поискового запроса
+     * @param sites           сайты, по которым осуществляется поиск
+     * @param outputOffset    количество результатов, которые необходимо пропустить
+     * @param resultsQtyLimit количество результатов на одной странице
+     */
+    SearchContext(String queryText, Set<String> lemmas, Collection<Site> sites, int outputOffset, int resultsQtyLimit) {
+        this.queryText = queryText;
+        this.lemmas = Collections.unmodifiableSet(new HashSet<>(lemmas));
+        this.sites = Collections.unmodifiableList(new ArrayList<>(sites));
+        this.outputOffset = outputOffset;
+        this.resultsQtyLimit = resultsQtyLimit;
+    }
+}
@@ -0,0 +1,37 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * класс, хранящий номера поколений поискового индекса сайтов
+ * номер поколения увеличивается при каждом изменении индекса сайта и используется для
+ * определения актуальности сохранённых результатов поиска
+ */
+@Component
+class SearchIndexGeneration {
+    private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>(); // key = id сайта, value = номер поколения индекса
+
+    /**
+     * получение текущего номера поколения индекса сайта
+     *
+     * @param siteId id сайта
+     * @return номер поколения индекса
+     */
+    public long get(int siteId) {
+        AtomicLong generation = generations.get(siteId);
+        return (generation == null) ? 0L : generation.get();
+    }
+
+    /**
+     * увеличение номера поколения индекса сайта после изменения индекса
+     *
+     * @param siteId id сайта
+     */
+    public void increment(int siteId) {
+        generations.computeIfAbsent(siteId, key -> new AtomicLong()).incrementAndGet();
+    }
+}
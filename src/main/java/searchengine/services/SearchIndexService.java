@@ -4,7 +4,6 @@ package searchengine.services;
 import searchengine.model.SearchIndex;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * интерфейс, позволяющий запускать операции с индексами страниц в БД
@@ -19,13 +18,27 @@ public interface SearchIndexService {
     List<SearchIndex> findByLemmaId(int lemmaId);
 
     /**
-     * создание и сохранение индексов в БД
+     * получение списка вхождений леммы: id страниц по возрастанию и ранги леммы на страницах
+     * если загружен поисковый индекс в памяти, то обращение к БД не выполняется
      *
-     * @param lemmasMap           Map: key = значение леммы (String), value = id леммы в БД (Integer)
-     * @param rankedPageLemmasMap Map: key = значение леммы (String), value = ранг леммы на странице (Float)
-     * @param pageId              id страницы
+     * @param lemmaId id леммы
+     * @return список вхождений леммы с заданным id
+     */
+    PostingList findPostingsByLemmaId(int lemmaId);
+
+    /**
+     * сохранение индексов в БД
+     *
+     * @param searchIndexes индексы страниц
+     */
+    void insertIndexes(List<SearchIndex> searchIndexes);
+
+    /**
+     * массовая загрузка индексов в БД (используется при полной индексации сайта)
+     *
+     * @param searchIndexes индексы страниц
      */
-    void saveIndexes(Map<String, Integer> lemmasMap, Map<String, Integer> rankedPageLemmasMap, Integer pageId);
+    void loadIndexes(List<SearchIndex> searchIndexes);
 
     /**
      * поиск индексов страниц по id страницы
@@ -7,7 +7,6 @@ import searchengine.repository.SearchIndexNonStandardRepository;
 import searchengine.repository.SearchIndexRepository;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * класс, реализующий запуск операций с индексами страниц в БД
@@ -19,10 +18,14 @@ class SearchIndexServiceImpl implements SearchIndexService {
 
     private final SearchIndexNonStandardRepository searchIndexNonStandardRepository;
 
+    private final InMemorySearchIndex inMemorySearchIndex;
+
     @Autowired
-    public SearchIndexServiceImpl(SearchIndexRepository searchIndexRepository, SearchIndexNonStandardRepository searchIndexNonStandardRepository) {
+    public SearchIndexServiceImpl(SearchIndexRepository searchIndexRepository, SearchIndexNonStandardRepository searchIndexNonStandardRepository,
+                                  InMemorySearchIndex inMemorySearchIndex) {
         this.searchIndexRepository = searchIndexRepository;
         this.searchIndexNonStandardRepository = searchIndexNonStandardRepository;
+        this.inMemorySearchIndex = inMemorySearchIndex;
     }
 
     @Override
@@ -31,8 +34,21 @@ class SearchIndexServiceImpl implements SearchIndexService {
     }
 
     @Override
-    public void saveIndexes(Map<String, Integer> lemmasMap, Map<String, Integer> rankedPageLemmasMap, Integer pageId) {
-        searchIndexNonStandardRepository.saveIndexes(lemmasMap, rankedPageLemmasMap, pageId);
+    public PostingList findPostingsByLemmaId(int lemmaId) {
+        if (inMemorySearchIndex.isReady()) {
+            return inMemorySearchIndex.getPostings(lemmaId);
+        }
+        return PostingList.of(searchIndexRepository.findByLemmaId(lemmaId));
+    }
+
+    @Override
+    public void insertIndexes(List<SearchIndex> searchIndexes) {
+        searchIndexNonStandardRepository.insertIndexes(searchIndexes);
+    }
+
+    @Override
+    public void loadIndexes(List<SearchIndex> searchIndexes) {
+        searchIndexNonStandardRepository.loadIndexes(searchIndexes);
     }
 
     @Override
@@ -0,0 +1,136 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+import searchengine.model.Site;
+
+import java.util.*;
+
+/**
+ * кэш упорядоченных результатов поиска
+ * ключ: отсортированные леммы запроса, id сайтов, по которым осуществлялся поиск, и номера поколений их индексов;
+ * записи удаляются по истечении времени жизни, либо при превышении максимального размера кэша (вытесняются давно не использованные)
+ */
+@Component
+class SearchResultCache {
+    private final SearchIndexGeneration searchIndexGeneration;
+    private final Map<Key, Entry> entries;  // записи кэша в порядке обращения к ним
+    private final long ttlMillis;           // время жизни записи, мс
+
+    @Autowired
+    public SearchResultCache(SearchIndexGeneration searchIndexGeneration, Config config) {
+        this.searchIndexGeneration = searchIndexGeneration;
+        this.ttlMillis = config.getSearchCacheTtl() * 1000L;
+
+        int maxSize = config.getSearchCacheSize();
+
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * создание ключа кэша для поискового запроса
+     * номера поколений индексов сайтов входят в ключ, поэтому после изменения индекса старые записи перестают использоваться
+     *
+     * @param searchContext контекст поискового запроса
+     * @return ключ кэша
+     */
+    public Key createKey(SearchContext searchContext) {
+        List<String> lemmas = new ArrayList<>(searchContext.getLemmas());
+        Collections.sort(lemmas);
+
+        List<Site> sites = new ArrayList<>(searchContext.getSites());
+        sites.sort(Comparator.comparingInt(Site::getId));
+
+        long[] siteGenerations = new long[sites.size() * 2];
+        for (int i = 0; i < sites.size(); i++) {
+            int siteId = sites.get(i).getId();
+            siteGenerations[2 * i] = siteId;
+            siteGenerations[2 * i + 1] = searchIndexGeneration.get(siteId);
+        }
+
+        return new Key(lemmas, siteGenerations);
+    }
+
+    /**
+     * получение результата поиска из кэша
+     *
+     * @param key ключ кэша
+     * @return сохранённый результат поиска; null, если результат отсутствует или устарел
+     */
+    public synchronized RankedSearchResult get(Key key) {
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+            entries.remove(key);
+            return null;
+        }
+
+        return entry.rankedSearchResult;
+    }
+
+    /**
+     * сохранение результата поиска в кэше
+     *
+     * @param key                ключ кэша
+     * @param rankedSearchResult результат поиска
+     */
+    public synchronized void put(Key key, RankedSearchResult rankedSearchResult) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        entries.put(key, new Entry(rankedSearchResult, System.currentTimeMillis()));
+    }
+
+    /**
+     * ключ кэша результатов поиска
+     */
+    static final class Key {
+        private final List<String> lemmas;      // отсортированные леммы запроса
+        private final long[] siteGenerations;   // пары: id сайта, номер поколения индекса сайта
+
+        private Key(List<String> lemmas, long[] siteGenerations) {
+            this.lemmas = lemmas;
+            this.siteGenerations = siteGenerations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return lemmas.equals(key.lemmas) && Arrays.equals(siteGenerations, key.siteGenerations);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * lemmas.hashCode() + Arrays.hashCode(siteGenerations);
+        }
+    }
+
+    /**
+     * запись кэша результатов поиска
+     */
+    private static final class Entry {
+        private final RankedSearchResult rankedSearchResult;    // результат поиска
+        private final long createdAt;                           // время создания записи, мс
+
+        private Entry(RankedSearchResult rankedSearchResult, long createdAt) {
+            this.rankedSearchResult = rankedSearchResult;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package searchengine.services;
+
+import searchengine.model.Site;
+
+import java.util.Arrays;
+
+/**
+ * класс, используемый для накопления результатов одного поискового запроса по всем сайтам
+ * экземпляр создаётся для каждого запроса, поэтому результаты параллельных запросов не пересекаются
+ */
+class SearchResults {
+    private int[] pageIds = new int[16];            // id найденных страниц по всем сайтам
+    private float[] absRelevances = new float[16];  // абсолютные релевантности страниц
+    private Site[] sites = new Site[16];            // сайты, к которым относятся страницы
+    private int size = 0;                           // количество найденных страниц
+    private float maxRelevance = 0f;                // максимальная абсолютная релевантность
+    private boolean complete = true;                // получены ли результаты по всем сайтам
+
+    /**
+     * добавление страниц сайта к результатам поиска
+     *
+     * @param site       сайт
+     * @param pageScores страницы сайта, содержащие все леммы запроса, и их абсолютные релевантности
+     */
+    public void addSiteResults(Site site, PageScores pageScores) {
+        int newSize = size + pageScores.size();
+
+        if (newSize > pageIds.length) {
+            int capacity = Math.max(newSize, pageIds.length + (pageIds.length >> 1));
+            pageIds = Arrays.copyOf(pageIds, capacity);
+            absRelevances = Arrays.copyOf(absRelevances, capacity);
+            sites = Arrays.copyOf(sites, capacity);
+        }
+
+        for (int i = 0; i < pageScores.size(); i++) {
+            float absRelevance = pageScores.getScore(i);
+            pageIds[size] = pageScores.getPageId(i);
+            absRelevances[size] = absRelevance;
+            sites[size] = site;
+            maxRelevance = Float.max(absRelevance, maxRelevance);
+            ++size;
+        }
+    }
+
+    /**
+     * отметка о том, что результаты по одному из сайтов не были получены
+     */
+    public void markIncomplete() {
+        complete = false;
+    }
+
+    /**
+     * создание результата поиска; упорядочивание страниц по релевантности выполняется при выводе
+     * только в необходимом объёме
+     *
+     * @return результат поиска
+     */
+    public RankedSearchResult createRankedResult() {
+        return new RankedSearchResult(pageIds, absRelevances, sites, size, maxRelevance, complete);
+    }
+}
@@ -0,0 +1,84 @@
+package searchengine.services;
+
+/**
+ * вычисление SimHash текста страницы: 64-битного отпечатка, у которого тексты с почти одинаковым содержанием
+ * отличаются небольшим количеством битов
+ * признаки текста - последовательности из трёх слов (шинглы) в нижнем регистре; каждый шингл хэшируется,
+ * и для каждого бита результата подсчитывается, у скольких шинглов он установлен, а у скольких - нет
+ */
+final class SimHash {
+    // количество слов в шингле
+    private static final int SHINGLE_SIZE = 3;
+    // минимальное количество шинглов: для более коротких текстов отпечаток не вычисляется,
+    // т.к. короткие разные страницы (например, пустые) легко оказываются "почти одинаковыми"
+    private static final int MIN_SHINGLES_QTY = 10;
+
+    private SimHash() {
+    }
+
+    /**
+     * вычисление SimHash текста
+     *
+     * @param text текст страницы без HTML разметки
+     * @return SimHash текста; null, если текст слишком короткий
+     */
+    static Long compute(CharSequence text) {
+        int[] weights = new int[64];
+        long[] wordHashes = new long[SHINGLE_SIZE]; // хэши последних слов, циклический буфер
+        int wordsQty = 0;
+        int shinglesQty = 0;
+
+        Tokenizer tokenizer = new Tokenizer(text);
+
+        while (tokenizer.next()) {
+            wordHashes[wordsQty % SHINGLE_SIZE] = UtilService.getFingerprint(tokenizer);
+            ++wordsQty;
+
+            if (wordsQty >= SHINGLE_SIZE) {
+                long shingleHash = 0;
+                for (int i = 0; i < SHINGLE_SIZE; i++) {
+                    shingleHash = mix(shingleHash * 31 + wordHashes[(wordsQty + i) % SHINGLE_SIZE]);
+                }
+                for (int bit = 0; bit < 64; bit++) {
+                    weights[bit] += ((shingleHash >>> bit) & 1) == 1 ? 1 : -1;
+                }
+                ++shinglesQty;
+            }
+        }
+
+        if (shinglesQty < MIN_SHINGLES_QTY) {
+            return null;
+        }
+
+        long simHash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+        return simHash;
+    }
+
+    /**
+     * количество различающихся битов двух отпечатков
+     *
+     * @param simHash1 первый отпечаток
+     * @param simHash2 второй отпечаток
+     * @return расстояние Хэмминга
+     */
+    static int distance(long simHash1, long simHash2) {
+        return Long.bitCount(simHash1 ^ simHash2);
+    }
+
+    /**
+     * перемешивание битов (финализатор MurmurHash3)
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,17 +1,43 @@
 package searchengine.services;
 
+import searchengine.model.Page;
+
 /**
  * интерфейс, используемый для сохранения страниц и запуска их индексации
  */
 public interface SiteMappingService {
     /**
-     * создание страниц, добавление в буфер
-     * при достижении заданного размера буфера, запуск их сохранения и индексации
+     * передача разобранной страницы на лемматизацию и сохранение
+     * при обходе сайта страница передаётся в конвейер индексации; если очередь конвейера заполнена, поток ожидает
+     * если у страницы задан id, она заменяет существующую страницу: прежние данные индекса страницы удаляются
      *
-     * @param pageUrl      ссылка на страницу
-     * @param responseCode код http ответа
-     * @param pageContent  содержание страницы
+     * @param page страница
      * @return true - в случае успеха, false - в случае прерывания процесса индексации
      */
-    boolean proceedWithPageData(String pageUrl, int responseCode, String pageContent, int siteId);
+    boolean proceedWithPageData(Page page);
+
+    /**
+     * учёт разбора страницы в счётчиках конвейера индексации
+     *
+     * @param startNanos время начала разбора страницы (System.nanoTime)
+     */
+    void recordParsed(long startNanos);
+
+    /**
+     * получение сохранённого контента страницы
+     * используется при повторной индексации для получения ссылок неизменившейся страницы
+     *
+     * @param pageId id страницы
+     * @return контент страницы; пустая строка, если страница не найдена
+     */
+    String findPageContent(int pageId);
+
+    /**
+     * сохранение новых заголовков ETag и Last-Modified неизменившейся страницы
+     *
+     * @param pageId       id страницы
+     * @param etag         заголовок ETag
+     * @param lastModified заголовок Last-Modified
+     */
+    void updatePageValidators(int pageId, String etag, String lastModified);
 }
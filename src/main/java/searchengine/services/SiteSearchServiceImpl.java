@@ -14,9 +14,10 @@ import searchengine.dto.response.ResponseSearch;
 import searchengine.dto.search_result.SearchResultData;
 import searchengine.model.*;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
 
 /**
  * класс, реализующий выполнение поискового запроса пользователя
@@ -24,16 +25,6 @@ import java.util.stream.Collectors;
 @Service
 @Log4j2
 class SiteSearchServiceImpl implements SiteSearchService {
-    // символы, обрабатываемые на страницах и в запросах
-    private static final String ALLOWED_SYMBOLS_REGEX = "[а-яА-Яa-zA-Z0-9]+";
-    // разбиение текста на слова, пробелы и остальные знаки
-    private static final String REQ_SPLIT_REGEX = "(?<=[^а-яА-Яa-zA-Z0-9])|(?=[^а-яА-Яa-zA-Z0-9])";
-    // открывающий тег
-    private static final String OP_TAG = "<b>";
-    // закрывающий тег
-    private static final String CL_TAG = "</b>";
-    // количество слов, пробелов и прочих остальных знаков перед первым и после последнего искомого слова в snippet
-    private static final int LEADING_AND_TRAILING_ITEMS_QTY = 60;
     private final LemmasProcessingService lemmasProcessingService; // лемматизатор
     private final LemmaService lemmaService; // операции с леммами в БД
     private final SearchIndexService searchIndexService; // операции с индексами страниц в БД
@@ -41,11 +32,14 @@ class SiteSearchServiceImpl implements SiteSearchService {
     private final SiteService siteService; // операции с сайтами в БД
     private final Config config; // доступ к параметрам конфигурации
     private final LoggingService loggingService;
-    private boolean isMapInitialized = false;
+    private final SearchResultCache searchResultCache; // кэш упорядоченных результатов поиска
+    private final ExecutorService searchExecutor; // пул потоков для параллельного поиска по сайтам
+    private final SnippetGenerator snippetGenerator; // генератор snippet
 
     @Autowired
     public SiteSearchServiceImpl(LemmasProcessingService lemmasProcessingService, LemmaService lemmaService, SearchIndexService searchIndexService,
-                                 PageService pageService, SiteService siteService, LoggingService loggingService, Config config) {
+                                 PageService pageService, SiteService siteService, LoggingService loggingService, Config config,
+                                 SearchResultCache searchResultCache, SnippetGenerator snippetGenerator) {
         this.lemmasProcessingService = lemmasProcessingService;
         this.lemmaService = lemmaService;
         this.searchIndexService = searchIndexService;
@@ -53,6 +47,17 @@ class SiteSearchServiceImpl implements SiteSearchService {
         this.siteService = siteService;
         this.loggingService = loggingService;
         this.config = config;
+        this.searchResultCache = searchResultCache;
+        this.snippetGenerator = snippetGenerator;
+        this.searchExecutor = Executors.newFixedThreadPool(Math.max(config.getSearchThreads(), 1));
+    }
+
+    /**
+     * остановка пула потоков поиска при завершении работы приложения
+     */
+    @PreDestroy
+    public void shutdownSearchExecutor() {
+        searchExecutor.shutdownNow();
     }
 
     /**
@@ -76,14 +81,19 @@ class SiteSearchServiceImpl implements SiteSearchService {
                 response = new ResponseFail(false, "Задан пустой поисковый запрос");
                 httpStatus = HttpStatus.BAD_REQUEST;
             } else {
-                SearchResultData[] resultData = getSearchResults(queryText, siteUrl, outputOffset, resultsQtyLimit);
-                response = new ResponseSearch(true, SearchResultProcessor.getAllSearchResultProcessorList().size(), resultData);
+                SearchContext searchContext = createSearchContext(queryText, siteUrl, outputOffset, resultsQtyLimit);
+                response = getSearchResults(searchContext);
                 httpStatus = HttpStatus.OK;
             }
         } catch (IOException ioEx) {
             response = new ResponseFail(false, ioEx.getMessage());
             httpStatus = HttpStatus.BAD_REQUEST;
             log.error("Поиск: ошибка", ioEx);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            response = new ResponseFail(false, "Поиск был прерван");
+            httpStatus = HttpStatus.SERVICE_UNAVAILABLE;
+            log.warn("Поиск: прерван");
         } catch (Exception ex) {
             response = new ResponseFail(false, "Не удалось совершить поиск");
             httpStatus = HttpStatus.INTERNAL_SERVER_ERROR;
@@ -115,52 +125,146 @@ class SiteSearchServiceImpl implements SiteSearchService {
     }
 
     /**
-     * пошагово создаются и заполняются объекты SearchResultProcessor
+     * создание контекста поискового запроса
      *
      * @param queryText       строка, содержащая поисковый запрос
      * @param siteUrl         ссылка на сайт, по которому необходимо выполнить поиск
      * @param outputOffset    количество результатов, которые необходимо пропустить
      * @param resultsQtyLimit количество результатов на одной странице
-     * @return массив объектов SearchResultData, который впоследствии используется для вывода результата поиска пользователю
+     * @return объект SearchContext, используемый на всех этапах поиска
      * @throws IOException исключение, если отсутствуют проиндексированные сайты
      */
-    public SearchResultData[] getSearchResults(String queryText, String siteUrl, Integer outputOffset, Integer resultsQtyLimit) throws IOException {
-
+    private SearchContext createSearchContext(String queryText, String siteUrl, Integer outputOffset,
+                                              Integer resultsQtyLimit) throws IOException {
         Set<String> lemmasSet = lemmasProcessingService.getTextLemmas(queryText);
 
-        if (outputOffset == 0) {
-            SearchResultProcessor.clearResults();
+        Set<Site> siteSet;
 
-            Set<Site> siteSet;
+        if (siteUrl == null) {
+            siteSet = getValidSites();
+        } else {
+            Site singleSite = getSite(siteUrl);
 
-            if (siteUrl == null) {
-                siteSet = getValidSites();
-            } else {
-                Site singleSite = getSite(siteUrl);
+            siteSet = new HashSet<>();
+            siteSet.add(singleSite);
+        }
 
-                siteSet = new HashSet<>();
-                siteSet.add(singleSite);
-            }
+        return new SearchContext(queryText, lemmasSet, siteSet, outputOffset, resultsQtyLimit);
+    }
+
+    /**
+     * пошагово создаются и заполняются объекты SearchResultProcessor
+     * упорядоченный результат поиска берётся из кэша, если запрос с теми же леммами по тем же сайтам уже выполнялся
+     * и индексы этих сайтов с тех пор не изменялись; иначе выполняется поиск и результат сохраняется в кэше
+     * результат, неполный из-за превышения времени поиска, в кэше не сохраняется
+     *
+     * @param searchContext контекст поискового запроса
+     * @return ответ на поисковый запрос: общее количество найденных страниц и данные для текущей страницы вывода
+     * @throws InterruptedException исключение, если поток был прерван во время ожидания результатов поиска по сайтам
+     * @throws ExecutionException   исключение, если поиск по одному из сайтов завершился ошибкой
+     */
+    ResponseSearch getSearchResults(SearchContext searchContext) throws InterruptedException, ExecutionException {
+        SearchResultCache.Key cacheKey = searchResultCache.createKey(searchContext);
 
+        RankedSearchResult rankedSearchResult = searchResultCache.get(cacheKey);
 
-            for (Site curSite : siteSet) {
-                getSiteSearchResults(lemmasSet, curSite);
+        if (rankedSearchResult == null) {
+            rankedSearchResult = findRankedResult(searchContext);
+            if (rankedSearchResult.isComplete()) {
+                searchResultCache.put(cacheKey, rankedSearchResult);
             }
+        }
+
+        List<SearchResultProcessor> searchResultList =
+                rankedSearchResult.slice(searchContext.getOutputOffset(), searchContext.getResultsQtyLimit());
+
+        addPagesData(searchResultList);
 
-            SearchResultProcessor.generateSortedTotalResults();
+        fillInSnippets(searchContext, searchResultList);
+
+        return new ResponseSearch(true, rankedSearchResult.getTotalQty(), generateResultArray(searchResultList));
+    }
+
+    /**
+     * поиск страниц по всем сайтам из контекста поискового запроса и упорядочивание их по релевантности
+     * поиск по нескольким сайтам выполняется параллельно в пуле потоков поиска, поэтому время поиска определяется самым медленным сайтом;
+     * сайты, поиск по которым не завершился за searchTimeout мс, в результат не попадают;
+     * ограничение времени действует и при поиске по одному сайту, поэтому без ограничения (searchTimeout = 0)
+     * поиск по одному сайту выполняется в текущем потоке, а при заданном ограничении - в пуле потоков поиска
+     *
+     * @param searchContext контекст поискового запроса
+     * @return упорядоченный результат поиска
+     * @throws InterruptedException исключение, если поток был прерван во время ожидания результатов поиска по сайтам
+     * @throws ExecutionException   исключение, если поиск по одному из сайтов завершился ошибкой
+     */
+    private RankedSearchResult findRankedResult(SearchContext searchContext) throws InterruptedException, ExecutionException {
+        SearchResults searchResults = new SearchResults();
+
+        List<Site> sites = searchContext.getSites();
+
+        long timeout = config.getSearchTimeout();
+
+        if (sites.size() == 1 && timeout <= 0) {
+            Site site = sites.get(0);
+            searchResults.addSiteResults(site, getSiteSearchResults(searchContext, site));
+            return searchResults.createRankedResult();
         }
 
-        SearchResultProcessor.limitResults(outputOffset, resultsQtyLimit);
+        List<Future<PageScores>> futures = new ArrayList<>(sites.size());
 
-        addPagesData();
+        for (Site curSite : sites) {
+            futures.add(searchExecutor.submit(() -> getSiteSearchResults(searchContext, curSite)));
+        }
 
-        SearchResultProcessor.setTitles();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
 
-        fillInSnippets(lemmasSet);
+        try {
+            for (int i = 0; i < sites.size(); i++) {
+                Site curSite = sites.get(i);
+                Future<PageScores> future = futures.get(i);
+                PageScores sitePageScores;
 
-        SearchResultData[] resultData = SearchResultProcessor.generateResultArray();
+                try {
+                    if (timeout > 0) {
+                        sitePageScores = future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                    } else {
+                        sitePageScores = future.get();
+                    }
+                } catch (TimeoutException timeoutEx) {
+                    future.cancel(true);
+                    searchResults.markIncomplete();
+                    log.warn("Поиск \"" + searchContext.getQueryText() + "\" по сайту " + curSite.getUrl()
+                            + " не завершён за " + timeout + " мс");
+                    continue;
+                }
 
-        return resultData;
+                searchResults.addSiteResults(curSite, sitePageScores);
+            }
+        } finally {
+            for (Future<PageScores> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return searchResults.createRankedResult();
+    }
+
+    /**
+     * получение массива данных для ответа на поисковый запрос
+     *
+     * @param searchResultList список объектов SearchResultProcessor для отображения на текущей странице
+     * @return массив данных для ответа на поисковый запрос
+     */
+    private SearchResultData[] generateResultArray(List<SearchResultProcessor> searchResultList) {
+        int arraySize = searchResultList.size();
+
+        SearchResultData[] resultArray = new SearchResultData[arraySize];
+
+        for (int i = 0; i < arraySize; i++) {
+            resultArray[i] = new SearchResultData(searchResultList.get(i));
+        }
+
+        return resultArray;
     }
 
     /**
@@ -168,18 +272,19 @@ class SiteSearchServiceImpl implements SiteSearchService {
      * если количество лемм в запросе больше 1,
      * то леммы содержащиеся более чем на (lemmaOccurrenceLimit * общее количество страниц) страницах будут исключены из поиска
      *
-     * @param lemmasSet сет лемм из поискового запроса пользователя
-     * @param site      сайт, по которому осуществляется поиск
+     * @param searchContext контекст поискового запроса
+     * @param site          сайт, по которому осуществляется поиск
+     * @return страницы сайта, содержащие все леммы запроса, и их абсолютные релевантности
      */
-    private void getSiteSearchResults(Set<String> lemmasSet, Site site) {
-        isMapInitialized = false;
+    private PageScores getSiteSearchResults(SearchContext searchContext, Site site) {
+        PageScores sitePageScores = null;
 
-        SearchResultProcessor.clearSiteSearchResult();
+        Set<String> lemmasSet = searchContext.getLemmas();
 
         List<Lemma> lemmas = lemmaService.findLemmas(lemmasSet, site.getId());
 
         if (lemmasSet.size() != lemmas.size()) {
-            return;
+            return PageScores.EMPTY;
         }
 
         long pagesQty = pageService.countAllBySiteId(site.getId());
@@ -191,19 +296,20 @@ class SiteSearchServiceImpl implements SiteSearchService {
                 continue;
             }
 
-            List<SearchIndex> curSearchIndexes = searchIndexService.findByLemmaId(curLemma.getId());
+            PostingList curPostings = searchIndexService.findPostingsByLemmaId(curLemma.getId());
 
-            if (!isMapInitialized) {
-                try {
-                    initializeSearchResult(site, curSearchIndexes);
-                } catch (Exception ex) {
-                    log.warn(ex.getMessage());
-                }
+            if (sitePageScores == null) {
+                sitePageScores = PageScores.of(curPostings);
             } else {
-                reduceSearchResult(curSearchIndexes);
+                sitePageScores.intersect(curPostings);
+            }
+
+            if (sitePageScores.size() == 0) {
+                break;
             }
         }
-        SearchResultProcessor.calculateAbsRelevanceForSitePages();
+
+        return (sitePageScores == null) ? PageScores.EMPTY : sitePageScores;
     }
 
     /**
@@ -253,166 +359,17 @@ class SiteSearchServiceImpl implements SiteSearchService {
         return skipLemma;
     }
 
-    /**
-     * метод создаёт объекты SearchResultProcessor для самой редкой леммы и устанавливает перемнную isMapInitialized = true
-     * выполняется один раз для поискового запроса для каждого сайта, если перемнная isMapInitialized = false
-     *
-     * @param searchIndexes список объектов SearchIndex, относящийся к заданной лемме
-     */
-    private void initializeSearchResult(Site site, List<SearchIndex> searchIndexes) {
-        for (SearchIndex curSearchIndex : searchIndexes) {
-            int curPageId = curSearchIndex.getPageId();
-
-            SearchResultProcessor curSearchResultProcessor = new SearchResultProcessor(site, curPageId, curSearchIndex);
-            SearchResultProcessor.getSiteSearchResultMap().put(curPageId, curSearchResultProcessor);
-        }
-
-        isMapInitialized = true;
-    }
-
-    /**
-     * метод исключает страницы из результатов поиска страницы, которые не содержат заданной леммы
-     * выполняется для каждой леммы из поискового запроса, кроме первой (самой редкой), при isMapInitialized = true
-     *
-     * @param searchIndexes список объектов SearchIndex, относящийся к заданной лемме
-     */
-    private void reduceSearchResult(List<SearchIndex> searchIndexes) {
-        Map<Integer, SearchIndex> curIndexMap = new HashMap<>();
-
-        for (SearchIndex curSearchIndex : searchIndexes) {
-            curIndexMap.put(curSearchIndex.getPageId(), curSearchIndex);
-        }
-
-        Set<Integer> toLeave = new HashSet<>(SearchResultProcessor.getSiteSearchResultMap().keySet());
-        toLeave.retainAll(curIndexMap.keySet());
-
-        for (int pageId : SearchResultProcessor.getSiteSearchResultMap().keySet()) {
-            if (toLeave.contains(pageId)) {
-                SearchResultProcessor curSearchResultProcessor = SearchResultProcessor.getSiteSearchResultMap().get(pageId);
-                curSearchResultProcessor.addIndex(curIndexMap.get(pageId));
-            }
-        }
-        SearchResultProcessor.getSiteSearchResultMap().keySet().removeIf(key -> !toLeave.contains(key));
-    }
-
     /**
      * метод заполняет поля snippet для всех объектов SearchResultProcessor
      *
-     * @param reqLemmas сет лемм из запроса
-     */
-    private void fillInSnippets(Set<String> reqLemmas) {
-        for (SearchResultProcessor curSearchResultProcessor : SearchResultProcessor.getSearchResultList()) {
-            setSnippet(reqLemmas, curSearchResultProcessor);
-        }
-    }
-
-    /**
-     * метод заполняет поле snippet для заданного объекта SearchResultProcessor
-     *
-     * @param reqLemmas             сет лемм, содержащихся в поисковом запросе
-     * @param searchResultProcessor заданный объект SearchResultProcessor
-     */
-    private void setSnippet(Set<String> reqLemmas, SearchResultProcessor searchResultProcessor) {
-        List<String> snippetWords = new LinkedList<>();
-        int firstReqWordPos = 0;
-        int lastReqWordPos = 0;
-
-        Document htmlDocument = searchResultProcessor.getHtmlDocument();
-        List<String> bodies = htmlDocument.select("body").eachText();
-        if (bodies.size() == 0) {
-            return;
-        }
-
-        for (String body : bodies) {
-            String[] words = body.split(REQ_SPLIT_REGEX);
-            for (String curWord : words) {
-                if (isWordSearched(curWord, reqLemmas)) {
-                    snippetWords.add(OP_TAG);
-
-                    if (firstReqWordPos == 0) {
-                        firstReqWordPos = snippetWords.size() - 1;
-                    }
-
-                    snippetWords.add(curWord);
-                    snippetWords.add(CL_TAG);
-                    lastReqWordPos = snippetWords.size() - 1;
-                } else {
-                    snippetWords.add(curWord);
-                }
-            }
-        }
-
-        String snippetText = generateSnippetText(snippetWords, firstReqWordPos, lastReqWordPos);
-        searchResultProcessor.setSnippet(snippetText);
-    }
-
-    /**
-     * метод проверяет содержатся ли леммы заданного слова в поисковом запросе
-     *
-     * @param word      заданное слово
-     * @param reqLemmas сет, содержащий леммы поискового запроса
-     * @return true, если леммы заданного слова содержатся в поисковом запросе; false, если нет
+     * @param searchContext    контекст поискового запроса
+     * @param searchResultList список объектов SearchResultProcessor для отображения на текущей странице
      */
-    private boolean isWordSearched(String word, Set<String> reqLemmas) {
-
-        List<String> wordLemmas = lemmasProcessingService.getWordLemmas(word);
-
-        if (wordLemmas.size() == 0) {
-            if (!word.matches(ALLOWED_SYMBOLS_REGEX)) {
-                return false;
-            } else {
-                wordLemmas.add(word);
-            }
+    private void fillInSnippets(SearchContext searchContext, List<SearchResultProcessor> searchResultList) {
+        for (SearchResultProcessor curSearchResultProcessor : searchResultList) {
+            String snippet = snippetGenerator.generate(curSearchResultProcessor.getText(), searchContext.getLemmas());
+            curSearchResultProcessor.setSnippet(snippet);
         }
-
-        for (String curLemma : wordLemmas) {
-            if (reqLemmas.contains(curLemma)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * метод создаёт snippet
-     *
-     * @param snippetWords    список, содержащий текст страницы, разбитый на слова, пробелы и знаки препинания
-     * @param firstReqWordPos индекс первого вхождения слова из поискового запроса в списке snippetWords
-     * @param lastReqWordPos  индекс последнего вхождения слова из поискового запроса в списке snippetWords
-     * @return текст snippet
-     */
-    private String generateSnippetText(List<String> snippetWords, int firstReqWordPos, int lastReqWordPos) {
-        int i = firstReqWordPos;
-        int counter = 0;
-
-        while (i > 0 && !snippetWords.get(i).equals(".") && counter < LEADING_AND_TRAILING_ITEMS_QTY) {
-            --i;
-            ++counter;
-        }
-
-        firstReqWordPos = i;
-
-        if (snippetWords.get(firstReqWordPos).equals(".")) {
-            ++firstReqWordPos;
-        }
-
-        i = lastReqWordPos;
-        counter = 0;
-
-        while (i < snippetWords.size() - 1 && !snippetWords.get(i).equals(".") && counter < LEADING_AND_TRAILING_ITEMS_QTY) {
-            ++i;
-            ++counter;
-        }
-
-        lastReqWordPos = i;
-
-        StringBuilder snippetText = new StringBuilder();
-
-        for (int j = firstReqWordPos; j <= lastReqWordPos; j++) {
-            snippetText.append(snippetWords.get(j));
-        }
-
-        return snippetText.toString().trim();
     }
 
     /**
@@ -470,42 +427,43 @@ class SiteSearchServiceImpl implements SiteSearchService {
     }
 
     /**
-     * получение объетов Page для добавления данных к объектам SearchResultProcessor после ограничения количества результатов поиска
+     * добавление данных к объектам SearchResultProcessor после ограничения количества результатов поиска
+     * добавляемые данные:
+     * - ссылка на страницу;
+     * - заголовок и текст страницы, сохранённые при индексации
+     * HTML код загружается и разбирается только для страниц, проиндексированных до сохранения заголовка и текста
      *
-     * @param searchResultProcessors - список объектов SearchResultProcessor
-     * @return Map : Key = id страницы, value = объект Page (страница)
+     * @param searchResultProcessorList список объектов SearchResultProcessor для отображения на текущей странице
      */
-    private Map<Integer, Page> getPagesBySearchResults(List<SearchResultProcessor> searchResultProcessors) {
-        Map<Integer, Page> foundPagesMap = new HashMap<>();
+    private void addPagesData(List<SearchResultProcessor> searchResultProcessorList) {
+        Map<Integer, SearchResultProcessor> searchResultMap = new HashMap<>();
 
-        Set<Integer> pageIds = searchResultProcessors.stream().map(searchResultProcessor -> searchResultProcessor.getPageId()).collect(Collectors.toSet());
-        Iterable<Page> foundPages = pageService.findAllById(pageIds);
-
-        for (Page curPage : foundPages) {
-            foundPagesMap.put(curPage.getId(), curPage);
+        for (SearchResultProcessor curSearchResultProcessor : searchResultProcessorList) {
+            searchResultMap.put(curSearchResultProcessor.getPageId(), curSearchResultProcessor);
         }
 
-        return foundPagesMap;
-    }
-
-    /**
-     * добавление данных к объектам SearchResultProcessor после ограничения количества результатов поиска
-     * добавляемые данные:
-     * - HTML документ страницы;
-     * - ссылка на страницу
-     */
-    private void addPagesData() {
-        List<SearchResultProcessor> searchResultProcessorList = SearchResultProcessor.getSearchResultList();
+        List<Integer> pagesWithoutText = new ArrayList<>();
 
-        Map<Integer, Page> pagesMap = getPagesBySearchResults(searchResultProcessorList);
+        for (Object[] row : pageService.findSearchDataByIds(searchResultMap.keySet())) {
+            SearchResultProcessor curSearchResultProcessor = searchResultMap.get(((Number) row[0]).intValue());
+            curSearchResultProcessor.setPageUrl((String) row[1]);
+            curSearchResultProcessor.setTitle((String) row[2]);
+            curSearchResultProcessor.setText((String) row[3]);
 
-        for (SearchResultProcessor curSearchResultProcessor : searchResultProcessorList) {
-            Page curPage = pagesMap.get(curSearchResultProcessor.getPageId());
-            if (null != curPage) {
-                Document htmlDocument = Jsoup.parse(curPage.getPageContent());
-                curSearchResultProcessor.setHtmlDocument(htmlDocument);
-                curSearchResultProcessor.setPageUrl(curPage.getPageUrl());
+            if (row[3] == null) {
+                pagesWithoutText.add(curSearchResultProcessor.getPageId());
             }
         }
+
+        if (pagesWithoutText.isEmpty()) {
+            return;
+        }
+
+        for (Page curPage : pageService.findAllById(pagesWithoutText)) {
+            Document htmlDocument = Jsoup.parse(curPage.getPageContent());
+            SearchResultProcessor curSearchResultProcessor = searchResultMap.get(curPage.getId());
+            curSearchResultProcessor.setTitle(PageTextExtractor.getTitle(htmlDocument));
+            curSearchResultProcessor.setText(PageTextExtractor.getText(htmlDocument));
+        }
     }
-}
\ No newline at end of file
+}
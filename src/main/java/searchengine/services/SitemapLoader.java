@@ -0,0 +1,219 @@
+package searchengine.services;
+
+import lombok.extern.log4j.Log4j2;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * загрузка ссылок на страницы из карт сайта (sitemap.xml) с датой изменения (lastmod) и приоритетом (priority)
+ * поддерживаются индексы карт сайта (sitemapindex) и карты, сжатые gzip
+ * карты сайта загружаются по одной (loadNext), чтобы каждый запрос выполнялся отдельным заданием планировщика обхода
+ * с учётом ограничения частоты запросов к хосту
+ */
+@Log4j2
+final class SitemapLoader {
+    private static final int MAX_SITEMAPS_QTY = 100;                // максимальное количество загружаемых карт сайта
+    private static final int MAX_SITEMAP_SIZE = 50 * 1024 * 1024;   // максимальный размер карты сайта, байт
+
+    private final String userAgent;                                 // user agent поискового робота
+    private final int maxUrlsQty;                                   // максимальное количество ссылок
+    private final Deque<String> queue;                              // карты сайта, ожидающие загрузки
+    private final Set<String> loadedSitemaps = new HashSet<>();     // загруженные карты сайта
+    private final Map<String, Entry> entries = new LinkedHashMap<>(); // key = ссылка на страницу, value = дата изменения и приоритет
+
+    /**
+     * конструктор класса
+     *
+     * @param sitemapUrls ссылки на карты сайта
+     * @param userAgent   user agent поискового робота
+     * @param maxUrlsQty  максимальное количество ссылок
+     */
+    SitemapLoader(List<String> sitemapUrls, String userAgent, int maxUrlsQty) {
+        this.queue = new ArrayDeque<>(sitemapUrls);
+        this.userAgent = userAgent;
+        this.maxUrlsQty = maxUrlsQty;
+    }
+
+    /**
+     * проверка, остались ли карты сайта для загрузки
+     *
+     * @return true, если есть незагруженные карты сайта и ограничения количества карт и ссылок не достигнуты
+     */
+    boolean hasNext() {
+        return !queue.isEmpty() && loadedSitemaps.size() < MAX_SITEMAPS_QTY && entries.size() < maxUrlsQty;
+    }
+
+    /**
+     * загрузка следующей карты сайта: ссылки на страницы добавляются к найденным,
+     * вложенные карты сайта (из индекса карт сайта) - в очередь загрузки
+     * ошибка получения карты сайта записывается в лог, карта сайта пропускается
+     */
+    void loadNext() {
+        String sitemapUrl = queue.poll();
+        if (sitemapUrl == null || !loadedSitemaps.add(sitemapUrl)) {
+            return;
+        }
+
+        Document document;
+        try {
+            document = fetch(sitemapUrl, userAgent);
+        } catch (Exception ex) {
+            log.warn("Не удалось получить карту сайта " + sitemapUrl + ": " + ex.getMessage());
+            return;
+        }
+        if (document == null) {
+            return;
+        }
+
+        for (Element sitemap : document.getElementsByTag("sitemap")) {
+            String loc = getChildText(sitemap, "loc");
+            if (loc != null) {
+                queue.add(loc);
+            }
+        }
+
+        for (Element url : document.getElementsByTag("url")) {
+            String loc = getChildText(url, "loc");
+            if (loc != null && entries.size() < maxUrlsQty) {
+                entries.putIfAbsent(loc, new Entry(parseLastmod(getChildText(url, "lastmod")),
+                        parsePriority(getChildText(url, "priority"))));
+            }
+        }
+    }
+
+    /**
+     * получение ссылок из загруженных карт сайта
+     *
+     * @return key = ссылка на страницу, value = дата изменения и приоритет страницы
+     */
+    Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * получение и разбор карты сайта; сжатое gzip содержимое определяется по сигнатуре
+     *
+     * @param sitemapUrl ссылка на карту сайта
+     * @param userAgent  user agent поискового робота
+     * @return XML документ карты сайта; null, если карта сайта отсутствует
+     * @throws IOException исключение при ошибке получения или распаковки
+     */
+    private static Document fetch(String sitemapUrl, String userAgent) throws IOException {
+        Connection.Response response = Jsoup.connect(sitemapUrl).userAgent(userAgent).maxBodySize(MAX_SITEMAP_SIZE)
+                .ignoreContentType(true).ignoreHttpErrors(true).execute();
+
+        if (response.statusCode() != 200) {
+            return null;
+        }
+
+        byte[] body = response.bodyAsBytes();
+
+        if (body.length > 1 && body[0] == (byte) 0x1f && body[1] == (byte) 0x8b) {
+            try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = inputStream.readNBytes(MAX_SITEMAP_SIZE);
+            }
+        }
+
+        return Jsoup.parse(new ByteArrayInputStream(body), null, sitemapUrl, Parser.xmlParser());
+    }
+
+    /**
+     * получение текста дочернего элемента
+     *
+     * @param element элемент
+     * @param tagName имя дочернего элемента
+     * @return текст элемента без пробелов в начале и конце; null, если элемент отсутствует или пуст
+     */
+    private static String getChildText(Element element, String tagName) {
+        for (Element child : element.children()) {
+            if (child.tagName().equalsIgnoreCase(tagName)) {
+                String text = child.text().trim();
+                return text.isEmpty() ? null : text;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * разбор даты изменения страницы в формате W3C Datetime
+     * для даты без времени возвращается начало следующего дня, чтобы страница, изменённая в течение этого дня,
+     * не считалась неизменившейся
+     *
+     * @param lastmod значение lastmod
+     * @return дата изменения; null, если значение не задано или не может быть разобрано
+     */
+    static Instant parseLastmod(String lastmod) {
+        if (lastmod == null) {
+            return null;
+        }
+
+        try {
+            if (lastmod.length() == 10) {
+                return LocalDate.parse(lastmod).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            return OffsetDateTime.parse(lastmod).toInstant();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * разбор приоритета страницы
+     *
+     * @param priority значение priority
+     * @return приоритет от 0 до 1; 0.5, если значение не задано или не может быть разобрано
+     */
+    private static double parsePriority(String priority) {
+        if (priority == null) {
+            return CrawlTask.DEFAULT_PRIORITY;
+        }
+
+        try {
+            double result = Double.parseDouble(priority);
+            return (result >= 0 && result <= 1) ? result : CrawlTask.DEFAULT_PRIORITY;
+        } catch (NumberFormatException ex) {
+            return CrawlTask.DEFAULT_PRIORITY;
+        }
+    }
+
+    /**
+     * данные страницы из карты сайта
+     */
+    static final class Entry {
+        private final Instant lastmod;  // дата изменения страницы; null, если не задана
+        private final double priority;  // приоритет страницы
+
+        Entry(Instant lastmod, double priority) {
+            this.lastmod = lastmod;
+            this.priority = priority;
+        }
+
+        public Instant getLastmod() {
+            return lastmod;
+        }
+
+        public double getPriority() {
+            return priority;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package searchengine.services;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * задание обхода, заполняющее очередь обхода сайта ссылками из его карт сайта
+ * карты сайта берутся из robots.txt, либо, если они там не указаны, используется /sitemap.xml;
+ * ссылки приводятся к каноническому виду, ссылки, обход которых запрещён robots.txt, и уже пройденные ссылки пропускаются
+ * страницы из карт сайта получают глубину 1 и приоритет из карты сайта; само задание выполняется раньше остальных
+ * задание выполняется синхронно в потоке пула обхода страниц; пока оно не завершено, обход сайта не может завершиться
+ * за один запуск загружается одна карта сайта, затем задание снова ставится в очередь хоста: каждый запрос карты сайта
+ * выполняется планировщиком обхода с учётом ограничения частоты запросов к хосту и Crawl-delay
+ * ссылки передаются в очередь обхода после загрузки всех карт сайта
+ */
+@Log4j2
+class SitemapSeedTask implements CrawlTask {
+    private final AuxSiteData auxSiteData;      // сайт, для которого загружаются карты сайта
+    private final SitemapLoader sitemapLoader;  // загрузка карт сайта
+
+    /**
+     * конструктор класса
+     *
+     * @param auxSiteData сайт, для которого загружаются карты сайта
+     * @param sitemapUrls ссылки на карты сайта из robots.txt
+     * @param maxUrlsQty  максимальное количество ссылок из карт сайта
+     */
+    SitemapSeedTask(AuxSiteData auxSiteData, List<String> sitemapUrls, int maxUrlsQty) {
+        this.auxSiteData = auxSiteData;
+        this.sitemapLoader = new SitemapLoader(
+                sitemapUrls.isEmpty() ? List.of(auxSiteData.getRootUrl() + "/sitemap.xml") : sitemapUrls,
+                auxSiteData.getUserAgent(), maxUrlsQty);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return auxSiteData.isCrawlStopped();
+    }
+
+    @Override
+    public double getPriority() {
+        return 1;
+    }
+
+    /**
+     * загрузка очередной карты сайта; если карты сайта для загрузки остались, задание снова ставится в очередь хоста,
+     * иначе найденные ссылки передаются в планировщик обхода
+     *
+     * @return завершённый CompletableFuture
+     */
+    @Override
+    public CompletableFuture<Void> start() {
+        try {
+            if (!auxSiteData.isCrawlStopped()) {
+                sitemapLoader.loadNext();
+
+                if (sitemapLoader.hasNext()) {
+                    auxSiteData.submitTask(this);
+                } else {
+                    seed();
+                }
+            }
+        } catch (Exception ex) {
+            log.warn("Не удалось загрузить карты сайта " + auxSiteData.getRootUrl() + ": " + ex.getMessage());
+        } finally {
+            auxSiteData.taskFinished();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void seed() {
+        Map<String, SitemapLoader.Entry> entries = sitemapLoader.getEntries();
+        UrlCanonicalizer urlCanonicalizer = auxSiteData.getUrlCanonicalizer();
+        CrawlBudget crawlBudget = auxSiteData.getCrawlBudget();
+        int seededQty = 0;
+
+        if (!crawlBudget.allowsDepth(1)) {
+            return;
+        }
+
+        for (Map.Entry<String, SitemapLoader.Entry> entry : entries.entrySet()) {
+            if (auxSiteData.isCrawlStopped()) {
+                return;
+            }
+
+            String link = urlCanonicalizer.canonicalize(entry.getKey());
+
+            if (link != null && auxSiteData.isAllowedUrl(link) && auxSiteData.addCheckedUrl(link)) {
+                if (!crawlBudget.tryAcquirePage()) {
+                    break;
+                }
+                SitemapLoader.Entry sitemapEntry = entry.getValue();
+                auxSiteData.submitPage(link, 1, sitemapEntry.getLastmod(), sitemapEntry.getPriority());
+                ++seededQty;
+            }
+        }
+
+        auxSiteData.getCrawlJournal().seeded();
+
+        System.out.println("Site #" + auxSiteData.getSiteId() + ": " + entries.size() + " links found in sitemaps, "
+                + seededQty + " pages scheduled");
+    }
+}
@@ -0,0 +1,299 @@
+package searchengine.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import searchengine.config.Config;
+
+import java.util.*;
+
+/**
+ * генератор snippet: фрагментов текста страницы с выделенными словами из поискового запроса
+ * все этапы выполняются за линейное время относительно длины текста:
+ * 1. текст разбивается на слова классом Tokenizer (позиции начала и конца слов в тексте);
+ * 2. слова-кандидаты отбираются без лемматизации - по совпадению начала слова с началом одной из лемм запроса;
+ * 3. скользящим окном выбираются фрагменты с наибольшим количеством различных лемм запроса и вхождений;
+ * 4. лемматизируются только слова-кандидаты внутри выбранных фрагментов
+ * слова, начало которых не совпадает с началом леммы (например, "шёл" для леммы "идти"), не выделяются -
+ * это плата за отказ от лемматизации всего текста страницы
+ */
+@Component
+class SnippetGenerator {
+    // открывающий тег
+    private static final String OP_TAG = "<b>";
+    // закрывающий тег
+    private static final String CL_TAG = "</b>";
+    // разделитель фрагментов
+    private static final String FRAGMENTS_DELIMITER = " ... ";
+    // минимальная длина начала леммы, по которому отбираются слова-кандидаты
+    private static final int MIN_PREFIX_LENGTH = 3;
+    // количество последних символов леммы, которые могут отличаться у словоформ
+    private static final int ENDING_LENGTH = 2;
+    // максимальное количество фрагментов, в которых не подтвердилось ни одно слово-кандидат
+    private static final int MAX_RETRIES = 3;
+    private final LemmasProcessingService lemmasProcessingService; // лемматизатор
+    private final int fragmentsQty;     // максимальное количество фрагментов в snippet
+    private final int fragmentLength;   // количество слов во фрагменте
+
+    @Autowired
+    public SnippetGenerator(LemmasProcessingService lemmasProcessingService, Config config) {
+        this.lemmasProcessingService = lemmasProcessingService;
+        this.fragmentsQty = Math.max(config.getSnippetFragmentsQty(), 1);
+        this.fragmentLength = Math.max(config.getSnippetFragmentLength(), 1);
+    }
+
+    /**
+     * создание snippet
+     *
+     * @param text      текст страницы без HTML разметки
+     * @param reqLemmas леммы поискового запроса
+     * @return текст snippet; пустая строка, если текст отсутствует
+     */
+    public String generate(String text, Set<String> reqLemmas) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+
+        List<String> lemmas = new ArrayList<>(reqLemmas);
+        String[] prefixes = new String[lemmas.size()];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = getPrefix(lemmas.get(i));
+        }
+
+        // слова текста и кандидаты: номера слов и номера лемм запроса, с которыми совпадает начало слова
+        Words words = new Words();
+        int[] candidates = new int[16];
+        int[] candidateTerms = new int[16];
+        int candidatesQty = 0;
+
+        Tokenizer tokenizer = new Tokenizer(text);
+
+        while (tokenizer.next()) {
+            int w = words.size;
+            words.add(tokenizer.getStart(), tokenizer.getEnd());
+
+            int term = findTerm(tokenizer, prefixes);
+            if (term < 0) {
+                continue;
+            }
+            if (candidatesQty == candidates.length) {
+                candidates = Arrays.copyOf(candidates, candidatesQty * 2);
+                candidateTerms = Arrays.copyOf(candidateTerms, candidatesQty * 2);
+            }
+            candidates[candidatesQty] = w;
+            candidateTerms[candidatesQty] = term;
+            ++candidatesQty;
+        }
+
+        boolean[] confirmed = new boolean[words.size];
+        boolean[] checked = new boolean[candidatesQty];
+        boolean[] used = new boolean[candidatesQty];
+        Map<String, Boolean> checkedWords = new HashMap<>();
+        List<int[]> fragments = new ArrayList<>();
+        int retries = 0;
+
+        while (fragments.size() < fragmentsQty) {
+            int[] window = findBestWindow(candidates, candidateTerms, candidatesQty, used, lemmas.size());
+            if (window == null) {
+                break;
+            }
+
+            boolean anyConfirmed = false;
+            for (int c = window[0]; c <= window[1]; c++) {
+                used[c] = true;
+                if (!checked[c]) {
+                    checked[c] = true;
+                    int w = candidates[c];
+                    String word = Tokenizer.fold(text, words.starts[w], words.ends[w]);
+                    confirmed[w] = checkedWords.computeIfAbsent(word, key -> isWordSearched(key, reqLemmas));
+                }
+                anyConfirmed |= confirmed[candidates[c]];
+            }
+
+            if (!anyConfirmed) {
+                if (++retries > MAX_RETRIES) {
+                    break;
+                }
+                continue;
+            }
+            fragments.add(expandWindow(candidates[window[0]], candidates[window[1]], words.size));
+        }
+
+        // если совпадения не найдены, выводится начало текста
+        if (fragments.isEmpty()) {
+            fragments.add(new int[]{0, Math.min(fragmentLength, words.size) - 1});
+        }
+
+        return buildSnippet(text, words, confirmed, fragments);
+    }
+
+    /**
+     * получение начала леммы, по которому отбираются слова-кандидаты
+     *
+     * @param lemma лемма
+     * @return начало леммы
+     */
+    private static String getPrefix(String lemma) {
+        int prefixLength = Math.max(MIN_PREFIX_LENGTH, lemma.length() - ENDING_LENGTH);
+        return lemma.substring(0, Math.min(prefixLength, lemma.length()));
+    }
+
+    /**
+     * поиск леммы запроса, начало которой совпадает с началом текущего слова
+     *
+     * @param tokenizer текущее слово в нижнем регистре
+     * @param prefixes  начала лемм запроса
+     * @return номер леммы запроса; -1, если совпадений нет
+     */
+    private static int findTerm(Tokenizer tokenizer, String[] prefixes) {
+        for (int i = 0; i < prefixes.length; i++) {
+            if (tokenizer.startsWith(prefixes[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * поиск скользящим окном фрагмента с наибольшим количеством различных лемм запроса, а затем - вхождений
+     * фрагмент не должен содержать уже использованных кандидатов
+     *
+     * @param candidates     номера слов-кандидатов
+     * @param candidateTerms номера лемм запроса для кандидатов
+     * @param candidatesQty  количество кандидатов
+     * @param used           отметки о кандидатах, вошедших в уже выбранные фрагменты
+     * @param termsQty       количество лемм в запросе
+     * @return номера первого и последнего кандидатов фрагмента; null, если свободных кандидатов не осталось
+     */
+    private int[] findBestWindow(int[] candidates, int[] candidateTerms, int candidatesQty, boolean[] used,
+                                 int termsQty) {
+        int[] termCounts = new int[termsQty];
+        int distinctTerms = 0;
+        int bestScore = -1;
+        int[] best = null;
+        int left = 0;
+
+        for (int right = 0; right < candidatesQty; right++) {
+            if (used[right]) {
+                Arrays.fill(termCounts, 0);
+                distinctTerms = 0;
+                left = right + 1;
+                continue;
+            }
+            if (termCounts[candidateTerms[right]]++ == 0) {
+                ++distinctTerms;
+            }
+            while (candidates[right] - candidates[left] >= fragmentLength) {
+                if (--termCounts[candidateTerms[left]] == 0) {
+                    --distinctTerms;
+                }
+                ++left;
+            }
+
+            int score = distinctTerms * (fragmentLength + 1) + (right - left + 1);
+            if (score > bestScore) {
+                bestScore = score;
+                best = new int[]{left, right};
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * расширение фрагмента до fragmentLength слов: слова добавляются поровну до первого и после последнего кандидата
+     *
+     * @param firstWord  номер первого слова-кандидата
+     * @param lastWord   номер последнего слова-кандидата
+     * @param wordsQty   количество слов в тексте
+     * @return номера первого и последнего слов фрагмента
+     */
+    private int[] expandWindow(int firstWord, int lastWord, int wordsQty) {
+        int extra = fragmentLength - (lastWord - firstWord + 1);
+        int start = Math.max(0, firstWord - extra / 2);
+        int end = Math.min(wordsQty - 1, start + fragmentLength - 1);
+        start = Math.max(0, end - fragmentLength + 1);
+
+        return new int[]{start, end};
+    }
+
+    /**
+     * сборка текста snippet из фрагментов
+     *
+     * @param text      текст страницы
+     * @param words     слова текста
+     * @param confirmed отметки о словах, леммы которых содержатся в поисковом запросе
+     * @param fragments номера первого и последнего слов фрагментов
+     * @return текст snippet
+     */
+    private static String buildSnippet(String text, Words words, boolean[] confirmed, List<int[]> fragments) {
+        fragments.sort(Comparator.comparingInt(fragment -> fragment[0]));
+
+        StringBuilder snippet = new StringBuilder();
+        int lastEnd = -1;
+
+        for (int[] fragment : fragments) {
+            int start = Math.max(fragment[0], lastEnd + 1);
+            if (start > fragment[1]) {
+                continue;
+            }
+            if (snippet.length() > 0) {
+                snippet.append(FRAGMENTS_DELIMITER);
+            }
+
+            int pos = words.starts[start];
+            for (int w = start; w <= fragment[1]; w++) {
+                snippet.append(text, pos, words.starts[w]);
+                if (confirmed[w]) {
+                    snippet.append(OP_TAG).append(text, words.starts[w], words.ends[w]).append(CL_TAG);
+                } else {
+                    snippet.append(text, words.starts[w], words.ends[w]);
+                }
+                pos = words.ends[w];
+            }
+            lastEnd = fragment[1];
+        }
+
+        return snippet.toString().trim();
+    }
+
+    /**
+     * метод проверяет содержатся ли леммы заданного слова в поисковом запросе
+     *
+     * @param word      заданное слово в нижнем регистре
+     * @param reqLemmas сет, содержащий леммы поискового запроса
+     * @return true, если леммы заданного слова содержатся в поисковом запросе; false, если нет
+     */
+    private boolean isWordSearched(String word, Set<String> reqLemmas) {
+        List<String> wordLemmas = lemmasProcessingService.getWordLemmas(word);
+
+        if (wordLemmas.size() == 0) {
+            return reqLemmas.contains(word);
+        }
+
+        for (String curLemma : wordLemmas) {
+            if (reqLemmas.contains(curLemma)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * слова текста: позиции начала и конца каждого слова
+     */
+    private static final class Words {
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private int size = 0;
+
+        private void add(int start, int end) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            ++size;
+        }
+    }
+}
@@ -27,14 +27,21 @@ class StatisticsServiceImpl implements StatisticsService {
 
     private final LoggingService loggingService;
 
+    private final LemmaCache lemmaCache;
+
+    private final CrawlScheduler crawlScheduler;
+
     @Autowired
     public StatisticsServiceImpl(SiteService siteService, PageService pageService, LemmaService lemmaService,
-                                 IndexingControlService indexingControlService, LoggingService loggingService) {
+                                 IndexingControlService indexingControlService, LoggingService loggingService,
+                                 LemmaCache lemmaCache, CrawlScheduler crawlScheduler) {
         this.siteService = siteService;
         this.pageService = pageService;
         this.lemmaService = lemmaService;
         this.indexingControlService = indexingControlService;
         this.loggingService = loggingService;
+        this.lemmaCache = lemmaCache;
+        this.crawlScheduler = crawlScheduler;
     }
 
     /**
@@ -67,6 +74,12 @@ class StatisticsServiceImpl implements StatisticsService {
                 statistics.addDetailedInfo(curSite, sitePagesQty, siteLemmasQty);
             }
 
+            statistics.setLemmaCacheInfo(lemmaCache.getHitsQty(), lemmaCache.getMissesQty(),
+                    lemmaCache.getSize(), lemmaCache.getBytes());
+
+            statistics.setCrawlInfo(crawlScheduler.getThreadsQty(), crawlScheduler.getActiveTasksQty(),
+                    crawlScheduler.getQueuedTasksQty());
+
             response = new ResponseStatistics(true, statistics);
             httpStatus = HttpStatus.OK;
         } catch (Exception ex) {
@@ -0,0 +1,93 @@
+package searchengine.services;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+
+/**
+ * данные страницы, сохранённые при предыдущей индексации сайта; используются при повторной индексации,
+ * чтобы не сохранять и не индексировать повторно неизменившиеся страницы
+ */
+final class StoredPage {
+    private final int id;               // id страницы в таблице page
+    private final int responseCode;     // код http ответа
+    private final String etag;          // заголовок ETag; null, если не был получен
+    private final String lastModified;  // заголовок Last-Modified; null, если не был получен
+    private final Long contentHash;     // хэш контента страницы; null для страниц, сохранённых без хэша
+
+    StoredPage(int id, int responseCode, String etag, String lastModified, Long contentHash) {
+        this.id = id;
+        this.responseCode = responseCode;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * получение значения ETag для заголовка If-None-Match
+     * условный запрос отправляется только для страниц, которые были получены без ошибки
+     *
+     * @return ETag; null, если условный запрос не нужен
+     */
+    public String getEtag() {
+        return (responseCode == 200) ? etag : null;
+    }
+
+    /**
+     * получение значения Last-Modified для заголовка If-Modified-Since
+     *
+     * @return Last-Modified; null, если условный запрос не нужен
+     */
+    public String getLastModified() {
+        return (responseCode == 200) ? lastModified : null;
+    }
+
+    /**
+     * проверка, совпадает ли полученная страница с сохранённой
+     *
+     * @param newResponseCode код http ответа
+     * @param newContentHash  хэш контента полученной страницы
+     * @return true, если код ответа и хэш контента не изменились
+     */
+    public boolean isSameContent(int newResponseCode, long newContentHash) {
+        return responseCode == newResponseCode && contentHash != null && contentHash == newContentHash;
+    }
+
+    /**
+     * проверка, совпадают ли заголовки ETag и Last-Modified с сохранёнными
+     *
+     * @param newEtag         заголовок ETag
+     * @param newLastModified заголовок Last-Modified
+     * @return true, если заголовки не изменились
+     */
+    public boolean isSameValidators(String newEtag, String newLastModified) {
+        return Objects.equals(etag, newEtag) && Objects.equals(lastModified, newLastModified);
+    }
+
+    /**
+     * проверка, не изменилась ли страница после получения по дате изменения из карты сайта
+     * страница считается неизменившейся, если дата изменения не позже сохранённого заголовка Last-Modified
+     *
+     * @param lastmod дата изменения страницы из карты сайта; null, если не задана
+     * @return true, если страницу можно не запрашивать повторно
+     */
+    public boolean isUnchangedSince(Instant lastmod) {
+        String storedLastModified = getLastModified();
+        if (lastmod == null || storedLastModified == null) {
+            return false;
+        }
+
+        try {
+            Instant stored = ZonedDateTime.parse(storedLastModified, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !lastmod.isAfter(stored);
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package searchengine.services;
+
+import java.util.Arrays;
+
+/**
+ * разбиение текста на слова без регулярных выражений
+ * словом считается непрерывная последовательность символов а-я, А-Я, a-z, A-Z, 0-9 (как и в прежнем регулярном выражении);
+ * остальные символы являются разделителями
+ * текущее слово доступно как CharSequence в нижнем регистре: символы приводятся к нижнему регистру при копировании
+ * во внутренний буфер, который используется повторно для всех слов текста
+ * экземпляр не является потокобезопасным
+ */
+final class Tokenizer implements CharSequence {
+    private final CharSequence text;    // исходный текст
+    private char[] buffer = new char[32]; // текущее слово в нижнем регистре
+    private int length = 0;             // длина текущего слова
+    private int start = 0;              // позиция начала текущего слова в тексте
+    private int end = 0;                // позиция конца текущего слова в тексте (не включительно)
+
+    /**
+     * конструктор класса
+     *
+     * @param text текст, разбиваемый на слова
+     */
+    Tokenizer(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * переход к следующему слову текста
+     *
+     * @return true, если слово найдено; false, если текст закончился
+     */
+    public boolean next() {
+        int textLength = text.length();
+        int pos = end;
+
+        while (pos < textLength && !isWordChar(text.charAt(pos))) {
+            ++pos;
+        }
+
+        if (pos == textLength) {
+            start = end = textLength;
+            length = 0;
+            return false;
+        }
+
+        start = pos;
+        length = 0;
+
+        while (pos < textLength) {
+            char ch = text.charAt(pos);
+            if (!isWordChar(ch)) {
+                break;
+            }
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, length * 2);
+            }
+            buffer[length++] = fold(ch);
+            ++pos;
+        }
+        end = pos;
+
+        return true;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * проверка, начинается ли текущее слово (в нижнем регистре) с заданной строки
+     *
+     * @param prefix начало слова в нижнем регистре
+     * @return true, если слово начинается с prefix
+     */
+    public boolean startsWith(String prefix) {
+        int prefixLength = prefix.length();
+
+        if (prefixLength > length) {
+            return false;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if (buffer[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+        }
+        return buffer[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return toString().subSequence(from, to);
+    }
+
+    /**
+     * получение текущего слова в нижнем регистре
+     *
+     * @return новая строка, содержащая текущее слово
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * проверка, является ли символ частью слова
+     *
+     * @param ch символ
+     * @return true, если символ относится к а-я, А-Я, a-z, A-Z, 0-9
+     */
+    static boolean isWordChar(char ch) {
+        return (ch >= 'а' && ch <= 'я') || (ch >= 'А' && ch <= 'Я')
+                || (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9');
+    }
+
+    /**
+     * проверка, состоит ли строка только из символов слова
+     *
+     * @param word строка
+     * @return true, если строка не пустая и все её символы являются символами слова
+     */
+    static boolean isWord(CharSequence word) {
+        int wordLength = word.length();
+
+        if (wordLength == 0) {
+            return false;
+        }
+        for (int i = 0; i < wordLength; i++) {
+            if (!isWordChar(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * приведение символа слова к нижнему регистру
+     * заглавные буквы А-Я и A-Z отстоят от строчных на 32 позиции
+     *
+     * @param ch символ слова
+     * @return символ в нижнем регистре
+     */
+    static char fold(char ch) {
+        if ((ch >= 'А' && ch <= 'Я') || (ch >= 'A' && ch <= 'Z')) {
+            return (char) (ch + 32);
+        }
+        return ch;
+    }
+
+    /**
+     * получение фрагмента текста в нижнем регистре
+     *
+     * @param text  текст
+     * @param start позиция начала фрагмента
+     * @param end   позиция конца фрагмента (не включительно)
+     * @return фрагмент в нижнем регистре
+     */
+    static String fold(CharSequence text, int start, int end) {
+        char[] chars = new char[end - start];
+
+        for (int i = start; i < end; i++) {
+            chars[i - start] = fold(text.charAt(i));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,266 @@
+package searchengine.services;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * приведение ссылок сайта к каноническому виду, чтобы одна страница, доступная по разным ссылкам,
+ * запрашивалась один раз
+ * правила:
+ * - поддерживаются только схемы http и https;
+ * - схема и хост приводятся к нижнему регистру; ссылки на хост сайта с "www." и без него, по http и https,
+ *   с портом по умолчанию и без него, считаются ссылками на сайт и получают схему, хост и порт ссылки на сайт;
+ * - из пути удаляются сегменты "." и "..", пустой путь заменяется на "/";
+ * - в пути и параметрах запроса кодируются символы, недопустимые в ссылке (в UTF-8), декодируются
+ *   незарезервированные символы (%41 -> A), шестнадцатеричные цифры остальных кодов приводятся к верхнему регистру;
+ * - фрагмент (#...) удаляется;
+ * - из параметров запроса остаются только параметры из списка разрешённых, они сортируются
+ * ссылка на сайт из конфигурационного файла приводится к каноническому виду один раз, в конструкторе:
+ * с ней сравниваются канонические ссылки, от неё отсчитываются ссылки на страницы от корня сайта
+ * экземпляр не изменяется после создания и может использоваться несколькими потоками
+ */
+final class UrlCanonicalizer {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private final String rootUrl;       // ссылка на сайт в каноническом виде без "/" в конце
+    private final String rootPageUrl;   // ссылка на главную страницу сайта в каноническом виде
+    private final String siteOrigin;    // схема, хост и порт сайта, например, https://www.site.com
+    private final String siteHost;      // хост сайта без "www."
+    private final int sitePort;         // порт сайта (с учётом порта по умолчанию)
+    private final Set<String> allowedParams; // разрешённые параметры запроса
+
+    /**
+     * конструктор класса
+     *
+     * @param siteUrl       ссылка на сайт
+     * @param allowedParams имена параметров запроса, которые сохраняются в ссылке; null - параметры удаляются
+     */
+    UrlCanonicalizer(String siteUrl, Collection<String> allowedParams) {
+        this.allowedParams = (allowedParams == null) ? Set.of() : new HashSet<>(allowedParams);
+
+        URL url;
+        try {
+            url = new URL(siteUrl);
+        } catch (MalformedURLException ex) {
+            throw new IllegalArgumentException("Некорректная ссылка на сайт: " + siteUrl, ex);
+        }
+
+        String scheme = url.getProtocol().toLowerCase(Locale.ROOT);
+        String host = url.getHost().toLowerCase(Locale.ROOT);
+        int port = url.getPort();
+
+        this.siteHost = stripWww(host);
+        this.sitePort = (port == -1) ? url.getDefaultPort() : port;
+        this.siteOrigin = scheme + "://" + host + ((port == -1 || port == url.getDefaultPort()) ? "" : ":" + port);
+        this.rootPageUrl = siteOrigin + normalizePath(url.getPath());
+        this.rootUrl = UtilService.getUrlWithoutSlash(rootPageUrl);
+    }
+
+    /**
+     * получение ссылки на сайт в каноническом виде
+     *
+     * @return схема, хост, порт (кроме порта по умолчанию) и путь сайта без "/" в конце
+     */
+    String getRootUrl() {
+        return rootUrl;
+    }
+
+    /**
+     * получение ссылки на главную страницу сайта в каноническом виде, с которой начинается обход
+     *
+     * @return ссылка на главную страницу
+     */
+    String getRootPageUrl() {
+        return rootPageUrl;
+    }
+
+    /**
+     * приведение ссылки к каноническому виду
+     *
+     * @param absUrl абсолютная ссылка (относительные ссылки должны быть предварительно разрешены относительно
+     *               адреса документа)
+     * @return ссылка в каноническом виде; null, если ссылка не относится к сайту или не является http(s) ссылкой
+     */
+    String canonicalize(String absUrl) {
+        if (absUrl == null || absUrl.isEmpty()) {
+            return null;
+        }
+
+        URL url;
+        try {
+            url = new URL(absUrl);
+        } catch (MalformedURLException ex) {
+            return null;
+        }
+
+        String scheme = url.getProtocol().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            return null;
+        }
+
+        if (!stripWww(url.getHost().toLowerCase(Locale.ROOT)).equals(siteHost)) {
+            return null;
+        }
+        int port = url.getPort();
+        if (port != -1 && port != url.getDefaultPort() && port != sitePort) {
+            return null;
+        }
+
+        StringBuilder result = new StringBuilder(siteOrigin);
+        result.append(normalizePath(url.getPath()));
+
+        String query = normalizeQuery(url.getQuery());
+        if (!query.isEmpty()) {
+            result.append('?').append(query);
+        }
+
+        String canonicalUrl = result.toString();
+
+        if (!canonicalUrl.startsWith(rootUrl)) {
+            return null;
+        }
+        if (canonicalUrl.length() > rootUrl.length()) {
+            char nextChar = canonicalUrl.charAt(rootUrl.length());
+            if (nextChar != '/' && nextChar != '?') {
+                return null;
+            }
+        }
+
+        return canonicalUrl;
+    }
+
+    /**
+     * удаление сегментов "." и "..", нормализация кодирования символов пути
+     *
+     * @param path путь ссылки
+     * @return нормализованный путь, начинающийся с "/"
+     */
+    private String normalizePath(String path) {
+        Deque<String> segments = new ArrayDeque<>();
+        String[] parts = path.split("/", -1);
+
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            boolean isLast = i == parts.length - 1;
+
+            if (part.equals(".")) {
+                if (isLast) {
+                    segments.addLast("");
+                }
+            } else if (part.equals("..")) {
+                segments.pollLast();
+                if (isLast) {
+                    segments.addLast("");
+                }
+            } else if (!part.isEmpty() || i > 0) {
+                segments.addLast(normalizeEncoding(part, false));
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (String segment : segments) {
+            result.append('/').append(segment);
+        }
+        return (result.length() == 0) ? "/" : result.toString();
+    }
+
+    /**
+     * удаление неразрешённых параметров запроса, сортировка и нормализация кодирования оставшихся
+     *
+     * @param query строка запроса (без "?"), может быть null
+     * @return нормализованная строка запроса; пустая строка, если параметров не осталось
+     */
+    private String normalizeQuery(String query) {
+        if (query == null || query.isEmpty() || allowedParams.isEmpty()) {
+            return "";
+        }
+
+        List<String> params = new ArrayList<>();
+        for (String param : query.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            int eqPos = param.indexOf('=');
+            String name = (eqPos < 0) ? param : param.substring(0, eqPos);
+
+            if (allowedParams.contains(name)) {
+                params.add(normalizeEncoding(param, true));
+            }
+        }
+        params.sort(null);
+
+        return String.join("&", params);
+    }
+
+    /**
+     * нормализация кодирования символов
+     *
+     * @param part    часть ссылки (сегмент пути или параметр запроса)
+     * @param isQuery true для параметра запроса: в нём допустимы "?" и "/"
+     * @return часть ссылки, в которой закодированы только необходимые символы
+     */
+    private static String normalizeEncoding(String part, boolean isQuery) {
+        StringBuilder result = new StringBuilder(part.length());
+        int length = part.length();
+        int pos = 0;
+
+        while (pos < length) {
+            char ch = part.charAt(pos);
+
+            if (ch == '%' && pos + 2 < length && isHex(part.charAt(pos + 1)) && isHex(part.charAt(pos + 2))) {
+                int value = Character.digit(part.charAt(pos + 1), 16) * 16 + Character.digit(part.charAt(pos + 2), 16);
+                if (isUnreserved((char) value)) {
+                    result.append((char) value);
+                } else {
+                    appendEncoded(result, value);
+                }
+                pos += 3;
+            } else if (ch != '%' && ch < 128 && (isUnreserved(ch) || isAllowed(ch, isQuery))) {
+                result.append(ch);
+                ++pos;
+            } else {
+                int codePoint = part.codePointAt(pos);
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    appendEncoded(result, b & 0xff);
+                }
+                pos += Character.charCount(codePoint);
+            }
+        }
+        return result.toString();
+    }
+
+    private static void appendEncoded(StringBuilder result, int value) {
+        result.append('%').append(HEX_DIGITS[value >> 4]).append(HEX_DIGITS[value & 15]);
+    }
+
+    private static boolean isHex(char ch) {
+        return Character.digit(ch, 16) >= 0 && ch < 128;
+    }
+
+    /**
+     * проверка, является ли символ незарезервированным (RFC 3986): такие символы не нужно кодировать
+     */
+    private static boolean isUnreserved(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9')
+                || ch == '-' || ch == '.' || ch == '_' || ch == '~';
+    }
+
+    /**
+     * проверка, допустим ли зарезервированный символ в сегменте пути или параметре запроса без кодирования
+     */
+    private static boolean isAllowed(char ch, boolean isQuery) {
+        return "!$&'()*+,;=:@".indexOf(ch) >= 0 || (isQuery && (ch == '/' || ch == '?'));
+    }
+
+    private static String stripWww(String host) {
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+}
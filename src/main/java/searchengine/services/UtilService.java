@@ -25,4 +25,31 @@ public class UtilService {
 
         return outputUrl;
     }
+
+    /**
+     * вычисление 64-битного отпечатка строки: FNV-1a по символам строки и перемешивание битов (финализатор MurmurHash3)
+     * используется для учёта пройденных ссылок и для определения изменения контента страниц;
+     * вероятность совпадения отпечатков двух разных строк - около 2^-64, для 10 млн ссылок сайта вероятность
+     * хотя бы одного совпадения - порядка 10^-6
+     *
+     * @param text строка
+     * @return отпечаток строки
+     */
+    public static long getFingerprint(CharSequence text) {
+        long hash = 0xcbf29ce484222325L;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
 }
@@ -0,0 +1,37 @@
+package searchengine.services;
+
+/**
+ * множество ссылок, пройденных системой обхода страниц сайта
+ * ссылки хранятся не строками, а 64-битными отпечатками (UtilService.getFingerprint)
+ */
+interface VisitedUrls {
+    /**
+     * добавление ссылки в множество
+     * проверка и добавление выполняются атомарно: для одной ссылки true возвращается только одному потоку
+     * (для фильтра Блума - см. BloomUrlFilter)
+     *
+     * @param url ссылка на страницу
+     * @return true, если ссылка добавлена; false, если она уже была в множестве
+     */
+    boolean add(String url);
+
+    /**
+     * получение количества ссылок в множестве
+     *
+     * @return количество ссылок
+     */
+    long size();
+
+    /**
+     * создание множества пройденных ссылок
+     *
+     * @param bloomFilterMb размер фильтра Блума, МБ; если 0 - используется точное множество отпечатков
+     * @return множество пройденных ссылок
+     */
+    static VisitedUrls create(int bloomFilterMb) {
+        if (bloomFilterMb > 0) {
+            return new BloomUrlFilter(bloomFilterMb * 1024L * 1024L * 8);
+        }
+        return new FingerprintUrlSet();
+    }
+}
@@ -0,0 +1,119 @@
+package searchengine.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import searchengine.config.Config;
+import searchengine.model.SearchIndex;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * сравнение способов записи индексов (indexWriteMode): sql - многострочные INSERT, собранные из значений в текст запроса,
+ * batch - пакеты параметризованных запросов
+ * оба способа записывают одни и те же синтетические данные в БД H2 (режим совместимости с MySQL);
+ * записанные строки должны совпадать, время записи выводится для сравнения
+ * каждый способ выполняется несколько раз поочерёдно, выводится медиана времени записи;
+ * время, измеренное на H2, показывает затраты на сборку и разбор запросов, а не производительность MySQL
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:search_engine;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SearchIndexNonStandardRepositoryImpl.class, JdbcBatchWriter.class, Config.class})
+class SearchIndexWriteModeTest {
+    private static final int PAGES_QTY = 500;           // количество страниц
+    private static final int PAGE_LEMMAS_QTY = 40;      // количество лемм страницы
+    private static final int REPEATS_QTY = 5;           // количество повторов записи каждым способом
+    private static final List<String> WRITE_MODES = List.of("sql", "batch");
+
+    @Autowired
+    private SearchIndexNonStandardRepository searchIndexRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private Config config;
+
+    @Test
+    void writeModesSaveSameRows() {
+        List<SearchIndex> searchIndexes = createSearchIndexes();
+        List<String> expectedRows = new ArrayList<>();
+        searchIndexes.forEach(searchIndex -> expectedRows.add(toRow(searchIndex.getPageId(),
+                searchIndex.getLemmaId(), searchIndex.getRank())));
+
+        config.setIndexBufferSize(5000);
+        long[][] writeTimes = new long[WRITE_MODES.size()][REPEATS_QTY];
+
+        for (int repeat = 0; repeat < REPEATS_QTY; repeat++) {
+            for (int mode = 0; mode < WRITE_MODES.size(); mode++) {
+                config.setIndexWriteMode(WRITE_MODES.get(mode));
+                entityManager.createNativeQuery("DELETE FROM search_index").executeUpdate();
+
+                long start = System.nanoTime();
+                searchIndexRepository.insertIndexes(searchIndexes);
+                writeTimes[mode][repeat] = System.nanoTime() - start;
+
+                assertEquals(expectedRows, findRows(), "Способ записи " + WRITE_MODES.get(mode));
+            }
+        }
+
+        // Profiling
+        for (int mode = 0; mode < WRITE_MODES.size(); mode++) {
+            long[] times = writeTimes[mode];
+            Arrays.sort(times);
+            System.out.println("indexWriteMode = " + WRITE_MODES.get(mode) + ": " + searchIndexes.size()
+                    + " index rows, median " + times[times.length / 2] / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * создание индексов: ранги кратны 0.25 и точно представимы типом float
+     *
+     * @return индексы, упорядоченные по id страницы и id леммы
+     */
+    private static List<SearchIndex> createSearchIndexes() {
+        List<SearchIndex> searchIndexes = new ArrayList<>(PAGES_QTY * PAGE_LEMMAS_QTY);
+
+        for (int pageId = 1; pageId <= PAGES_QTY; pageId++) {
+            for (int i = 0; i < PAGE_LEMMAS_QTY; i++) {
+                int lemmaId = i * PAGES_QTY + pageId % PAGES_QTY + 1;
+                float rank = ((pageId * 7 + i * 13) % 40 + 1) * 0.25f;
+                searchIndexes.add(new SearchIndex(pageId, lemmaId, rank));
+            }
+        }
+        return searchIndexes;
+    }
+
+    /**
+     * получение записанных индексов
+     *
+     * @return строки индексов, упорядоченные по id страницы и id леммы
+     */
+    private List<String> findRows() {
+        List<Object[]> result = entityManager.createNativeQuery(
+                "SELECT page_id, lemma_id, lemma_rank FROM search_index ORDER BY page_id, lemma_id").getResultList();
+        List<String> rows = new ArrayList<>(result.size());
+
+        for (Object[] row : result) {
+            rows.add(toRow(((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+                    ((Number) row[2]).floatValue()));
+        }
+        return rows;
+    }
+
+    private static String toRow(int pageId, int lemmaId, float rank) {
+        return pageId + " " + lemmaId + " " + rank;
+    }
+}
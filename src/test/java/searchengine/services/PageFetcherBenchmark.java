@@ -0,0 +1,93 @@
+package searchengine.services;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import searchengine.config.Config;
+
+import java.util.concurrent.*;
+
+/**
+ * сравнение скорости получения страниц реализациями PageFetcher (jsoup и httpclient)
+ * страницы синтетического сайта отдаются локальным сервером StubSiteServer с задержкой ответа latencyMs;
+ * запросы запускаются из пула потоков обхода размером crawlSiteThreads (как в CrawlScheduler), одновременно
+ * выполняется не более maxRequests запросов:
+ * jsoup занимает поток пула на всё время запроса, httpclient освобождает его сразу после отправки запроса
+ * запуск: метод main из IDE либо mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=searchengine.services.PageFetcherBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PageFetcherBenchmark {
+    private static final int PAGES_QTY = 200;           // количество страниц сайта
+    private static final int CRAWL_SITE_THREADS = 4;    // размер пула потоков обхода
+    private static final int MAX_REQUESTS = 16;         // максимальное количество одновременных запросов
+
+    @Param({"jsoup", "httpclient"})
+    private String fetcher;
+
+    @Param({"0", "20"})
+    private long latencyMs;
+
+    private StubSiteServer server;
+    private PageFetcher pageFetcher;
+    private ExecutorService crawlExecutor;
+
+    @Setup
+    public void setUp() throws Exception {
+        Config config = new Config();
+        config.setFetchTimeout(30000);
+
+        server = new StubSiteServer(PAGES_QTY, latencyMs);
+        pageFetcher = fetcher.equals("httpclient") ? new HttpClientPageFetcher(config) : new JsoupPageFetcher(config);
+        crawlExecutor = Executors.newFixedThreadPool(CRAWL_SITE_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        crawlExecutor.shutdownNow();
+        if (pageFetcher instanceof HttpClientPageFetcher) {
+            ((HttpClientPageFetcher) pageFetcher).shutdown();
+        }
+        server.close();
+    }
+
+    /**
+     * получение всех страниц сайта
+     */
+    @Benchmark
+    public void fetchSite(Blackhole blackhole) throws Exception {
+        Semaphore requests = new Semaphore(MAX_REQUESTS);
+        CountDownLatch pagesLatch = new CountDownLatch(PAGES_QTY);
+
+        for (int pageNumber = 0; pageNumber < PAGES_QTY; pageNumber++) {
+            String url = server.getPageUrl(pageNumber);
+            requests.acquire();
+
+            crawlExecutor.execute(() -> pageFetcher.fetch(url, "BenchmarkBot", "http://www.google.com", null, null)
+                    .whenComplete((page, ex) -> {
+                        blackhole.consume(ex == null ? page.getBodyLength() : ex);
+                        requests.release();
+                        pagesLatch.countDown();
+                    }));
+        }
+
+        if (!pagesLatch.await(5, TimeUnit.MINUTES)) {
+            throw new TimeoutException("Страницы не получены за отведённое время");
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PageFetcherBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+package searchengine.services;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import searchengine.config.Config;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * проверка одинаковой работы реализаций PageFetcher (jsoup и httpclient) на локальном сервере с синтетическим сайтом
+ */
+class PageFetcherTest {
+    private static final String USER_AGENT = "TestBot";
+    private static final String REFERRER = "http://www.google.com";
+
+    private StubSiteServer server;
+    private HttpClientPageFetcher httpClientPageFetcher;
+    private List<PageFetcher> pageFetchers;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Config config = new Config();
+        config.setFetchTimeout(10000);
+
+        server = new StubSiteServer(10, 0);
+        httpClientPageFetcher = new HttpClientPageFetcher(config);
+        pageFetchers = List.of(new JsoupPageFetcher(config), httpClientPageFetcher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpClientPageFetcher.shutdown();
+        server.close();
+    }
+
+    @Test
+    void fetchersReturnSamePage() throws Exception {
+        String url = server.getPageUrl(3);
+        String expectedText = Jsoup.parse(StubSiteServer.createPage(3), url).text();
+
+        for (PageFetcher pageFetcher : pageFetchers) {
+            FetchedPage page = fetch(pageFetcher, url, null);
+            String fetcherName = pageFetcher.getClass().getSimpleName();
+
+            assertEquals(200, page.getStatusCode(), fetcherName);
+            assertTrue(page.isSuccessful() && page.isHtml(), fetcherName);
+            assertEquals(StubSiteServer.getEtag(3), page.getEtag(), fetcherName);
+
+            Document document = page.parse(url);
+            assertEquals("Страница 3", document.title(), fetcherName);
+            assertEquals(expectedText, document.text(), fetcherName);
+            assertEquals(server.getPageUrl(4), document.selectFirst("a").absUrl("href"), fetcherName);
+        }
+    }
+
+    @Test
+    void fetchersReturnHttpErrors() throws Exception {
+        for (PageFetcher pageFetcher : pageFetchers) {
+            FetchedPage page = fetch(pageFetcher, server.getUrl("/missing"), null);
+
+            assertEquals(404, page.getStatusCode(), pageFetcher.getClass().getSimpleName());
+            assertFalse(page.isSuccessful(), pageFetcher.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void fetchersSendConditionalRequests() throws Exception {
+        for (PageFetcher pageFetcher : pageFetchers) {
+            FetchedPage page = fetch(pageFetcher, server.getPageUrl(5), StubSiteServer.getEtag(5));
+
+            assertTrue(page.isNotModified(), pageFetcher.getClass().getSimpleName());
+            assertEquals(0, page.getBodyLength(), pageFetcher.getClass().getSimpleName());
+        }
+    }
+
+    private static FetchedPage fetch(PageFetcher pageFetcher, String url, String etag) throws Exception {
+        return pageFetcher.fetch(url, USER_AGENT, REFERRER, etag, null).get(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,283 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import searchengine.config.Config;
+import searchengine.dto.ResponseWrapper;
+import searchengine.dto.response.ResponseSearch;
+import searchengine.dto.search_result.SearchResultData;
+import searchengine.model.Lemma;
+import searchengine.model.Site;
+import searchengine.model.SiteStatus;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * проверка изоляции результатов одновременных поисковых запросов
+ * поиск выполняется по данным в памяти (сервисы БД заменены заглушками, кэш результатов отключён);
+ * результаты запросов, выполняемых одновременно из многих потоков, должны совпадать с результатами тех же
+ * запросов, выполненных последовательно
+ */
+class SiteSearchServiceConcurrencyTest {
+    private static final int SITES_QTY = 3;          // количество сайтов
+    private static final int PAGES_QTY = 60;         // количество страниц сайта
+    private static final int WORDS_QTY = 8;          // количество лемм сайта
+    private static final int THREADS_QTY = 16;       // количество потоков, одновременно выполняющих поиск
+    private static final int REPEATS_QTY = 20;       // количество повторов каждого запроса
+
+    private final List<Site> sites = new ArrayList<>();
+    private SiteSearchServiceImpl siteSearchService;
+
+    @BeforeEach
+    void setUp() {
+        for (int siteId = 1; siteId <= SITES_QTY; siteId++) {
+            Site site = new Site(SiteStatus.INDEXED, LocalDateTime.now(), null,
+                    "https://site" + siteId + ".test/", "Site " + siteId);
+            site.setId(siteId);
+            sites.add(site);
+        }
+
+        Config config = new Config();
+        config.setLemmaOccurrenceLimit(1);
+        config.setSearchThreads(4);
+        config.setSearchTimeout(0);
+        config.setSearchCacheSize(0);
+
+        LemmasProcessingService lemmasProcessingService = mock(LemmasProcessingService.class);
+        when(lemmasProcessingService.getTextLemmas(anyString())).thenAnswer(invocation ->
+                new HashSet<>(Arrays.asList(invocation.<String>getArgument(0).split(" "))));
+
+        LemmaService lemmaService = mock(LemmaService.class);
+        when(lemmaService.findLemmas(anyCollection(), anyInt())).thenAnswer(invocation ->
+                findLemmas(invocation.getArgument(0), invocation.getArgument(1)));
+
+        SearchIndexService searchIndexService = mock(SearchIndexService.class);
+        when(searchIndexService.findPostingsByLemmaId(anyInt())).thenAnswer(invocation ->
+                createPostings(invocation.getArgument(0)));
+
+        PageService pageService = mock(PageService.class);
+        when(pageService.countAllBySiteId(anyInt())).thenReturn((long) PAGES_QTY);
+        when(pageService.findSearchDataByIds(anyCollection())).thenAnswer(invocation ->
+                findSearchData(invocation.getArgument(0)));
+
+        SiteService siteService = mock(SiteService.class);
+        when(siteService.findAll()).thenReturn(sites);
+        when(siteService.findByUrl(anyString())).thenAnswer(invocation -> sites.stream()
+                .filter(site -> site.getUrl().equals(invocation.getArgument(0))).collect(Collectors.toList()));
+
+        SnippetGenerator snippetGenerator = mock(SnippetGenerator.class);
+        when(snippetGenerator.generate(any(), any())).thenAnswer(invocation ->
+                invocation.getArgument(0) + " " + new TreeSet<>(invocation.<Set<String>>getArgument(1)));
+
+        siteSearchService = new SiteSearchServiceImpl(lemmasProcessingService, lemmaService, searchIndexService,
+                pageService, siteService, mock(LoggingService.class), config,
+                new SearchResultCache(new SearchIndexGeneration(), config), snippetGenerator);
+    }
+
+    @AfterEach
+    void tearDown() {
+        siteSearchService.shutdownSearchExecutor();
+    }
+
+    @Test
+    void concurrentSearchesReturnSequentialResults() throws Exception {
+        List<SearchRequest> requests = createRequests();
+        Map<SearchRequest, String> expectedResults = new HashMap<>();
+
+        for (SearchRequest request : requests) {
+            expectedResults.put(request, search(request));
+        }
+
+        List<SearchRequest> shuffledRequests = new ArrayList<>();
+        for (int i = 0; i < REPEATS_QTY; i++) {
+            shuffledRequests.addAll(requests);
+        }
+        Collections.shuffle(shuffledRequests, new Random(42));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_QTY);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>();
+
+        try {
+            for (SearchRequest request : shuffledRequests) {
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    return search(request);
+                }));
+            }
+            startLatch.countDown();
+
+            for (int i = 0; i < shuffledRequests.size(); i++) {
+                SearchRequest request = shuffledRequests.get(i);
+                assertEquals(expectedResults.get(request), futures.get(i).get(60, TimeUnit.SECONDS),
+                        "Результат запроса " + request + " отличается от последовательного");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * создание запросов: сочетания лемм, поиск по всем сайтам и по одному сайту, разные страницы вывода
+     *
+     * @return список запросов
+     */
+    private List<SearchRequest> createRequests() {
+        List<SearchRequest> requests = new ArrayList<>();
+        List<String> queries = List.of("w0", "w1", "w2 w3", "w1 w4", "w0 w5 w6", "w7", "w3 w7");
+        List<String> siteUrls = new ArrayList<>();
+        siteUrls.add(null);
+        sites.forEach(site -> siteUrls.add(site.getUrl()));
+
+        for (String query : queries) {
+            for (String siteUrl : siteUrls) {
+                for (int offset : List.of(0, 5, 20)) {
+                    requests.add(new SearchRequest(query, siteUrl, offset, 10));
+                }
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * выполнение запроса и представление ответа в виде строки для сравнения
+     *
+     * @param request запрос
+     * @return количество найденных страниц и данные страниц текущей страницы вывода
+     */
+    private String search(SearchRequest request) {
+        ResponseWrapper responseWrapper = siteSearchService.searchSites(request.query, request.siteUrl,
+                request.offset, request.limit);
+
+        assertEquals(HttpStatus.OK, responseWrapper.getHttpStatus());
+        assertTrue(responseWrapper.getResponse() instanceof ResponseSearch);
+
+        ResponseSearch response = (ResponseSearch) responseWrapper.getResponse();
+        StringBuilder result = new StringBuilder().append(response.getCount());
+
+        for (SearchResultData data : response.getData()) {
+            result.append('\n').append(data.getSite()).append(data.getUri()).append(" | ").append(data.getTitle())
+                    .append(" | ").append(data.getSnippet()).append(" | ").append(data.getRelevance());
+        }
+        return result.toString();
+    }
+
+    /**
+     * поиск лемм сайта: лемма wN имеет id = siteId * 100 + N
+     *
+     * @param lemmaStrings значения лемм
+     * @param siteId       id сайта
+     * @return леммы, упорядоченные по частоте
+     */
+    private List<Lemma> findLemmas(Collection<String> lemmaStrings, int siteId) {
+        List<Lemma> lemmas = new ArrayList<>();
+
+        for (String lemmaString : lemmaStrings) {
+            int wordNumber = Integer.parseInt(lemmaString.substring(1));
+            if (wordNumber >= WORDS_QTY) {
+                continue;
+            }
+
+            int lemmaId = siteId * 100 + wordNumber;
+            Lemma lemma = new Lemma(lemmaString, createPostings(lemmaId).size());
+            lemma.setId(lemmaId);
+            lemma.setSiteId(siteId);
+            lemmas.add(lemma);
+        }
+
+        lemmas.sort(Comparator.comparingInt(Lemma::getFrequency));
+        return lemmas;
+    }
+
+    /**
+     * создание списка вхождений леммы: страницы и ранги вычисляются из id сайта и номера леммы
+     *
+     * @param lemmaId id леммы
+     * @return список вхождений
+     */
+    private static PostingList createPostings(int lemmaId) {
+        int siteId = lemmaId / 100;
+        int wordNumber = lemmaId % 100;
+        int[] pageIds = new int[PAGES_QTY];
+        float[] ranks = new float[PAGES_QTY];
+        int size = 0;
+
+        for (int page = 0; page < PAGES_QTY; page++) {
+            if ((page * (wordNumber + 1) + siteId) % 3 != 0) {
+                pageIds[size] = siteId * 1000 + page;
+                ranks[size] = (page * 31 + wordNumber * 7 + siteId) % 17 + 1;
+                ++size;
+            }
+        }
+
+        return PostingList.sorted(pageIds, ranks, size, siteId);
+    }
+
+    /**
+     * получение данных страниц для вывода результатов поиска
+     *
+     * @param pageIds id страниц
+     * @return список массивов: id страницы, ссылка, заголовок, текст
+     */
+    private static List<Object[]> findSearchData(Collection<Integer> pageIds) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Integer pageId : pageIds) {
+            rows.add(new Object[]{pageId, "/page" + pageId, "Title " + pageId, "Text " + pageId});
+        }
+        return rows;
+    }
+
+    /**
+     * параметры поискового запроса
+     */
+    private static final class SearchRequest {
+        private final String query;
+        private final String siteUrl;
+        private final int offset;
+        private final int limit;
+
+        private SearchRequest(String query, String siteUrl, int offset, int limit) {
+            this.query = query;
+            this.siteUrl = siteUrl;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SearchRequest)) {
+                return false;
+            }
+            SearchRequest that = (SearchRequest) o;
+            return offset == that.offset && limit == that.limit && query.equals(that.query)
+                    && Objects.equals(siteUrl, that.siteUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, siteUrl, offset, limit);
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + query + "\" " + (siteUrl == null ? "все сайты" : siteUrl) + " offset " + offset;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package searchengine.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * локальный HTTP сервер, отдающий синтетический сайт
+ * страницы /page/0 ... /page/(pagesQty - 1) содержат текст и ссылки на несколько следующих страниц;
+ * на остальные пути сервер отвечает 404
+ * у каждой страницы есть ETag: при совпадении с If-None-Match сервер отвечает 304 без содержимого;
+ * если клиент принимает gzip, содержимое сжимается
+ * задержка ответа (latencyMs) имитирует время ответа удалённого сервера
+ */
+final class StubSiteServer implements AutoCloseable {
+    private static final int LINKS_QTY = 5;                 // количество ссылок на странице
+    private static final int PARAGRAPHS_QTY = 20;           // количество абзацев текста на странице
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int pagesQty;     // количество страниц сайта
+    private final long latencyMs;   // задержка ответа, мс
+
+    /**
+     * запуск сервера на свободном порту локального адреса
+     *
+     * @param pagesQty  количество страниц сайта
+     * @param latencyMs задержка ответа, мс
+     * @throws IOException исключение при ошибке запуска сервера
+     */
+    StubSiteServer(int pagesQty, long latencyMs) throws IOException {
+        this.pagesQty = pagesQty;
+        this.latencyMs = latencyMs;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool();
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * получение ссылки на страницу сайта
+     *
+     * @param pageNumber номер страницы
+     * @return абсолютная ссылка
+     */
+    String getPageUrl(int pageNumber) {
+        return getUrl("/page/" + pageNumber);
+    }
+
+    /**
+     * получение абсолютной ссылки по пути
+     *
+     * @param path путь
+     * @return абсолютная ссылка
+     */
+    String getUrl(String path) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+    }
+
+    int getPagesQty() {
+        return pagesQty;
+    }
+
+    /**
+     * создание содержимого страницы
+     *
+     * @param pageNumber номер страницы
+     * @return HTML страницы
+     */
+    static String createPage(int pageNumber) {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Страница ")
+                .append(pageNumber).append("</title></head><body><h1>Страница ").append(pageNumber).append("</h1>");
+
+        for (int i = 0; i < PARAGRAPHS_QTY; i++) {
+            html.append("<p>Абзац ").append(i).append(" страницы ").append(pageNumber)
+                    .append(": поисковый движок индексирует страницы сайтов, search engine test text.</p>");
+        }
+        for (int i = 1; i <= LINKS_QTY; i++) {
+            html.append("<a href=\"/page/").append(pageNumber + i).append("\">Ссылка ").append(i).append("</a>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    static String getEtag(int pageNumber) {
+        return "\"page-" + pageNumber + "\"";
+    }
+
+    /**
+     * обработка запроса
+     *
+     * @param exchange запрос и ответ
+     * @throws IOException исключение при ошибке ввода-вывода
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+
+            Integer pageNumber = getPageNumber(exchange.getRequestURI().getPath());
+            if (pageNumber == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            String etag = getEtag(pageNumber);
+            exchange.getResponseHeaders().set("ETag", etag);
+
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            byte[] body = createPage(pageNumber).getBytes(StandardCharsets.UTF_8);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                body = gzip(body);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * получение номера страницы по пути
+     *
+     * @param path путь
+     * @return номер страницы; null, если страница не существует
+     */
+    private Integer getPageNumber(String path) {
+        if (!path.startsWith("/page/")) {
+            return null;
+        }
+        try {
+            int pageNumber = Integer.parseInt(path.substring("/page/".length()));
+            return (pageNumber >= 0 && pageNumber < pagesQty) ? pageNumber : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,75 @@
+package searchengine.services;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * сравнение скорости разбиения текста на слова: прежнее регулярное выражение и Tokenizer
+ * текст страницы формируется синтетически (русские и английские слова, числа, знаки препинания)
+ * запуск: метод main из IDE либо mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=searchengine.services.TokenizerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+    @Param({"100", "2000"})
+    private int wordsQty;   // количество слов в тексте
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = TokenizerTest.createSyntheticText(wordsQty);
+    }
+
+    /**
+     * прежний способ: split по регулярному выражению и toLowerCase() для каждого слова
+     */
+    @Benchmark
+    public void regexSplit(Blackhole blackhole) {
+        for (String word : text.split(TokenizerTest.WORDS_SPLIT_REGEX)) {
+            if (!word.isEmpty()) {
+                blackhole.consume(word.toLowerCase());
+            }
+        }
+    }
+
+    /**
+     * Tokenizer с получением каждого слова в виде строки
+     */
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) {
+        Tokenizer tokenizer = new Tokenizer(text);
+        while (tokenizer.next()) {
+            blackhole.consume(tokenizer.toString());
+        }
+    }
+
+    /**
+     * Tokenizer без создания строк (слово читается из внутреннего буфера как CharSequence)
+     */
+    @Benchmark
+    public void tokenizerNoCopy(Blackhole blackhole) {
+        Tokenizer tokenizer = new Tokenizer(text);
+        while (tokenizer.next()) {
+            blackhole.consume(tokenizer.length());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TokenizerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,100 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * проверка совпадения результатов разбиения текста на слова классом Tokenizer с прежним разбиением
+ * регулярным выражением: text.split(WORDS_SPLIT_REGEX) с последующим toLowerCase() (пустые строки отбрасываются)
+ */
+class TokenizerTest {
+    static final String WORDS_SPLIT_REGEX = "([^а-яА-Яa-zA-Z0-9]+)"; // прежнее регулярное выражение
+
+    @Test
+    void tokensMatchRegexSplit() {
+        List<String> texts = List.of(
+                "",
+                " ",
+                "...,;!",
+                "Слово",
+                "ПРИВЕТ, Мир!",
+                "  Ведущие и завершающие разделители  ",
+                "Java 17 и Spring Boot 2.7.1 — поисковый движок",
+                "e-mail: Test.User@Example.COM, тел. +7 (999) 123-45-67",
+                "ёлка Ёж объём",
+                "Смешанный TEXT сoдержит латинскую o внутри слова",
+                "tab\tseparated\nnew line\r\nwindows",
+                "«Кавычки» „другие“ 'одинарные' \"двойные\"",
+                "über café naïve",
+                "x1y2z3 123abc АБВ123где",
+                createSyntheticText(500));
+
+        for (String text : texts) {
+            assertEquals(splitByRegex(text), splitByTokenizer(text), "Текст: " + text);
+        }
+    }
+
+    @Test
+    void tokenPositionsPointToSourceText() {
+        String text = createSyntheticText(200);
+        Tokenizer tokenizer = new Tokenizer(text);
+
+        while (tokenizer.next()) {
+            assertEquals(tokenizer.toString(),
+                    text.substring(tokenizer.getStart(), tokenizer.getEnd()).toLowerCase());
+        }
+    }
+
+    /**
+     * разбиение текста прежним способом
+     *
+     * @param text текст
+     * @return слова в нижнем регистре
+     */
+    static List<String> splitByRegex(String text) {
+        return Arrays.stream(text.split(WORDS_SPLIT_REGEX))
+                .filter(word -> !word.isEmpty())
+                .map(String::toLowerCase)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * разбиение текста с помощью Tokenizer
+     *
+     * @param text текст
+     * @return слова в нижнем регистре
+     */
+    static List<String> splitByTokenizer(String text) {
+        List<String> words = new ArrayList<>();
+        Tokenizer tokenizer = new Tokenizer(text);
+
+        while (tokenizer.next()) {
+            words.add(tokenizer.toString());
+        }
+        return words;
+    }
+
+    /**
+     * создание синтетического текста из русских и английских слов, чисел и знаков препинания
+     *
+     * @param wordsQty количество слов
+     * @return текст
+     */
+    static String createSyntheticText(int wordsQty) {
+        String[] words = {"Поисковый", "движок", "индексирует", "СТРАНИЦЫ", "сайтов", "и", "находит", "леммы",
+                "search", "Engine", "INDEX", "page", "2024", "v2", "Лемматизация", "текста"};
+        String[] separators = {" ", ", ", ". ", " — ", "; ", "\n", " (", ") ", ": ", "!? ", "/", "-"};
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < wordsQty; i++) {
+            text.append(words[(i * 7 + i / 3) % words.length]).append(separators[(i * 5 + 1) % separators.length]);
+        }
+        return text.toString();
+    }
+}